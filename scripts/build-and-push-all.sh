@@ -113,6 +113,9 @@ main() {
         exit 1
     fi
     
+    # Refuse to ship services whose copied classes have drifted apart
+    "${SCRIPT_DIR}/check-shared-sources.sh"
+    
     # Login to ECR
     ecr_login
     
@@ -0,0 +1,44 @@
+#!/bin/bash
+# Check that classes copied between services have not drifted apart.
+# Each service is built on its own from its own directory (see build-and-push-all.sh),
+# so shared code lives as copies that must stay identical apart from the package line.
+set -e
+
+SCRIPT_DIR="$(cd "$(dirname "${BASH_SOURCE[0]}")" && pwd)"
+SERVICES_DIR="${SCRIPT_DIR}/../services"
+
+# Colors
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+NC='\033[0m'
+
+log_info() { echo -e "${GREEN}[INFO]${NC} $1"; }
+log_error() { echo -e "${RED}[ERROR]${NC} $1"; }
+
+# Each group lists the copies of one class; the first is compared with the others
+SHARED_GROUPS=(
+    "order-bff/src/main/java/com/enterprise/shop/orderbff/config/MtlsClientFactory.java
+     user-bff/src/main/java/com/enterprise/shop/userbff/config/MtlsClientFactory.java
+     security-middleware/src/main/java/com/enterprise/shop/middleware/config/MtlsClientFactory.java"
+    "order-bff/src/main/java/com/enterprise/shop/orderbff/service/SingleFlight.java
+     user-bff/src/main/java/com/enterprise/shop/userbff/service/SingleFlight.java"
+)
+
+failed=0
+for group in "${SHARED_GROUPS[@]}"; do
+    read -r -a copies <<< "$(echo ${group})"
+    reference="${copies[0]}"
+    for copy in "${copies[@]:1}"; do
+        if ! diff <(grep -v '^package ' "${SERVICES_DIR}/${reference}") \
+                  <(grep -v '^package ' "${SERVICES_DIR}/${copy}") > /dev/null; then
+            log_error "${copy} differs from ${reference}"
+            failed=1
+        fi
+    done
+done
+
+if [ "${failed}" -ne 0 ]; then
+    log_error "Shared sources have drifted; apply the change to every copy"
+    exit 1
+fi
+log_info "Shared sources are in sync"
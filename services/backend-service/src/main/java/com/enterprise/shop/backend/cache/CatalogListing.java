@@ -0,0 +1,11 @@
+package com.enterprise.shop.backend.cache;
+
+import com.enterprise.shop.backend.dto.ProductResponse;
+
+import java.util.List;
+
+/**
+ * A cached catalog listing together with the catalog version read before it was loaded
+ */
+public record CatalogListing(long version, List<ProductResponse> products) {
+}
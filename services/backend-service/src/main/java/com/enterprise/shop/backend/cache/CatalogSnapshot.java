@@ -0,0 +1,19 @@
+package com.enterprise.shop.backend.cache;
+
+/**
+ * Pre-rendered JSON body of the first page of a catalog listing, optionally with a gzipped
+ * copy. nextAfter is the cursor for the rest of the listing, or null if it all fit.
+ */
+public record CatalogSnapshot(long version, String etag, byte[] body, byte[] gzipBody, Long nextAfter) {
+    
+    public boolean hasGzipBody() {
+        return gzipBody != null;
+    }
+    
+    /**
+     * Strong validators must differ per content-coding, so the gzipped variant gets its own ETag
+     */
+    public String gzipEtag() {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+}
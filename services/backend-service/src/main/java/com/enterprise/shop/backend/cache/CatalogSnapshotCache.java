@@ -0,0 +1,111 @@
+package com.enterprise.shop.backend.cache;
+
+import com.enterprise.shop.backend.dto.ApiResponse;
+import com.enterprise.shop.backend.dto.ProductResponse;
+import com.enterprise.shop.backend.service.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps catalog listings serialized as ready-to-send bytes, keyed by listing. A snapshot
+ * carries the version stamp of the listing it was rendered from, so it is re-rendered
+ * as soon as the cached listing is replaced and its ETag always matches its content.
+ * Like a keyset page, a snapshot holds at most catalog.page.max-size products in id order.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshotCache {
+    
+    private static final String ACTIVE_KEY = "active";
+    private static final String CATEGORY_KEY_PREFIX = "category:";
+    
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final boolean gzipEnabled;
+    private final int maxProducts;
+    private final Cache<String, CatalogSnapshot> snapshots;
+    
+    public CatalogSnapshotCache(
+            ProductService productService,
+            ObjectMapper objectMapper,
+            @Value("${catalog.response.gzip-enabled:true}") boolean gzipEnabled,
+            @Value("${catalog.page.max-size:100}") int maxProducts,
+            @Value("${catalog.response.max-snapshots:1000}") long maxSnapshots,
+            @Value("${catalog.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.gzipEnabled = gzipEnabled;
+        this.maxProducts = maxProducts;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxSnapshots)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+    
+    public CatalogSnapshot getActiveCatalog() {
+        return getSnapshot(ACTIVE_KEY, productService::getActiveListing);
+    }
+    
+    public CatalogSnapshot getCategory(String category) {
+        return getSnapshot(CATEGORY_KEY_PREFIX + category, () -> productService.getCategoryListing(category));
+    }
+    
+    private CatalogSnapshot getSnapshot(String key, Supplier<CatalogListing> loader) {
+        // Label the snapshot with the listing's own stamp, never with a separately read version
+        CatalogListing listing = loader.get();
+        CatalogSnapshot snapshot = snapshots.getIfPresent(key);
+        if (snapshot != null && snapshot.version() == listing.version()) {
+            return snapshot;
+        }
+        
+        snapshot = render(listing);
+        snapshots.put(key, snapshot);
+        log.debug("Rendered catalog snapshot {} at version {} ({} bytes)",
+                key, listing.version(), snapshot.body().length);
+        return snapshot;
+    }
+    
+    private CatalogSnapshot render(CatalogListing listing) {
+        long version = listing.version();
+        List<ProductResponse> products = listing.products().stream()
+                .sorted(Comparator.comparing(ProductResponse::getId))
+                .limit(maxProducts)
+                .toList();
+        Long nextAfter = listing.products().size() > products.size()
+                ? products.get(products.size() - 1).getId() : null;
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(ApiResponse.success(products));
+            
+            // The checksum keeps the ETag honest if a TTL reload picks up out-of-band changes
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            String etag = "\"v" + version + "-" + Long.toHexString(crc.getValue()) + "\"";
+            
+            return new CatalogSnapshot(version, etag, body, gzipEnabled ? gzip(body) : null, nextAfter);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to render catalog snapshot", e);
+        }
+    }
+    
+    private byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+}
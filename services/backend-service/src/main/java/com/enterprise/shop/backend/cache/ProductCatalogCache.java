@@ -0,0 +1,145 @@
+package com.enterprise.shop.backend.cache;
+
+import com.enterprise.shop.backend.dto.ProductResponse;
+import com.enterprise.shop.backend.event.ProductChangedEvent;
+import com.enterprise.shop.backend.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, TTL-evicting read-through cache for the product catalog. Entries are immutable
+ * ProductResponse copies, never managed entities, so callers cannot change what others see.
+ * Metrics are published as cache.* meters tagged cache=catalog.products / catalog.listings.
+ */
+@Component
+@Slf4j
+public class ProductCatalogCache {
+    
+    private static final String ACTIVE_KEY = "active";
+    private static final String CATEGORY_KEY_PREFIX = "category:";
+    
+    private final Cache<Long, ProductResponse> productsById;
+    private final Cache<String, CatalogListing> listings;
+    // Keyset pages live apart from full listings, so scanning cursors can't evict the hot listings
+    private final Cache<String, CatalogListing> pages;
+    private final AtomicLong version = new AtomicLong();
+    
+    public ProductCatalogCache(
+            @Value("${catalog.cache.max-products:200000}") long maxProducts,
+            @Value("${catalog.cache.max-listings:1000}") long maxListings,
+            @Value("${catalog.cache.max-pages:500}") long maxPages,
+            @Value("${catalog.cache.ttl-seconds:600}") long ttlSeconds,
+            MeterRegistry meterRegistry) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        
+        this.productsById = Caffeine.newBuilder()
+                .maximumSize(maxProducts)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        
+        this.listings = Caffeine.newBuilder()
+                .maximumSize(maxListings)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, productsById, "catalog.products");
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "catalog.listings");
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "catalog.pages");
+    }
+    
+    /**
+     * Get a product by id, loading it on a miss. Loaders returning null are not cached.
+     */
+    public ProductResponse getProduct(Long id, Function<Long, Product> loader) {
+        long before = version.get();
+        ProductResponse product = productsById.get(id, key -> {
+            Product loaded = loader.apply(key);
+            return loaded != null ? ProductResponse.from(loaded) : null;
+        });
+        if (product != null && version.get() != before) {
+            // A write committed while this may have been loading; don't keep what could predate it
+            productsById.invalidate(id);
+        }
+        return product;
+    }
+    
+    /**
+     * The active listing with the version it was loaded at, for callers that label derived data
+     */
+    public CatalogListing getActiveListing(Supplier<List<Product>> loader) {
+        return getListing(listings, ACTIVE_KEY, loader);
+    }
+    
+    public CatalogListing getCategoryListing(String category, Supplier<List<Product>> loader) {
+        return getListing(listings, CATEGORY_KEY_PREFIX + category, loader);
+    }
+    
+    public List<ProductResponse> getActivePage(long afterId, int size, Supplier<List<Product>> loader) {
+        return getListing(pages, ACTIVE_KEY + ":" + afterId + ":" + size, loader).products();
+    }
+    
+    public List<ProductResponse> getCategoryPage(String category, long afterId, int size,
+                                                 Supplier<List<Product>> loader) {
+        return getListing(pages, CATEGORY_KEY_PREFIX + category + ":" + afterId + ":" + size, loader).products();
+    }
+    
+    /**
+     * A listing stamped with an older version was loaded before a write committed and may
+     * have been stored after that write's invalidation; it is dropped and loaded again.
+     */
+    private CatalogListing getListing(Cache<String, CatalogListing> cache, String key,
+                                      Supplier<List<Product>> loader) {
+        CatalogListing listing = cache.get(key, k -> loadListing(loader));
+        if (listing.version() != version.get()) {
+            cache.asMap().remove(key, listing);
+            listing = cache.get(key, k -> loadListing(loader));
+        }
+        return listing;
+    }
+    
+    private CatalogListing loadListing(Supplier<List<Product>> loader) {
+        // Read the version before the database, so the stamp can only be older than the data
+        long loadedAt = version.get();
+        List<ProductResponse> products = loader.get().stream().map(ProductResponse::from).toList();
+        products.forEach(product -> productsById.put(product.getId(), product));
+        if (version.get() != loadedAt) {
+            products.forEach(product -> productsById.invalidate(product.getId()));
+        }
+        return new CatalogListing(loadedAt, products);
+    }
+    
+    /**
+     * Invalidate after the writing transaction commits. The version is bumped first,
+     * so a load that overlapped the write sees the change and discards its result.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        log.debug("Invalidating catalog cache for product {}", event.productId());
+        version.incrementAndGet();
+        if (event.productId() != null) {
+            productsById.invalidate(event.productId());
+        }
+        listings.invalidateAll();
+        pages.invalidateAll();
+    }
+}
@@ -0,0 +1,31 @@
+package com.enterprise.shop.backend.config;
+
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caps concurrent HTTP/2 streams per client connection when server.http2.enabled is set;
+ * Tomcat then accepts h2 over TLS and h2c (upgrade or prior knowledge) on plain connections
+ */
+@Configuration
+public class Http2ServerConfig {
+    
+    @Value("${http2.max-concurrent-streams:200}")
+    private long maxConcurrentStreams;
+    
+    @Bean
+    public TomcatConnectorCustomizer http2StreamLimitCustomizer() {
+        return connector -> {
+            for (UpgradeProtocol protocol : connector.findUpgradeProtocols()) {
+                if (protocol instanceof Http2Protocol http2) {
+                    http2.setMaxConcurrentStreams(maxConcurrentStreams);
+                    http2.setMaxConcurrentStreamExecution((int) maxConcurrentStreams);
+                }
+            }
+        };
+    }
+}
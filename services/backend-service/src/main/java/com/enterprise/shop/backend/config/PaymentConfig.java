@@ -0,0 +1,38 @@
+package com.enterprise.shop.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Scheduling drives the stalled-payment sweep in PaymentService
+@Configuration
+@EnableScheduling
+public class PaymentConfig {
+    
+    @Value("${payment.executor.core-size:8}")
+    private int coreSize;
+    
+    @Value("${payment.executor.max-size:32}")
+    private int maxSize;
+    
+    @Value("${payment.executor.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    /**
+     * Bounded worker pool for gateway calls. When the queue is full, submissions
+     * are rejected immediately rather than piling up behind a slow provider.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor paymentExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payment-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
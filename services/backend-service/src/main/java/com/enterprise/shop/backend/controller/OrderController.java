@@ -4,11 +4,16 @@ import com.enterprise.shop.backend.dto.*;
 import com.enterprise.shop.backend.model.Cart;
 import com.enterprise.shop.backend.model.Order;
 import com.enterprise.shop.backend.service.OrderService;
+import com.enterprise.shop.backend.service.PaymentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/order")
@@ -17,6 +22,7 @@ import java.util.List;
 public class OrderController {
     
     private final OrderService orderService;
+    private final PaymentService paymentService;
     
     @PostMapping("/add-to-cart")
     public ResponseEntity<ApiResponse<Cart>> addToCart(@RequestBody AddToCartRequest request) {
@@ -44,16 +50,45 @@ public class OrderController {
         }
     }
     
+    /**
+     * Enqueue a payment and return 202 with a payment id to poll
+     */
     @PostMapping("/payment")
     public ResponseEntity<ApiResponse<PaymentResponse>> processPayment(@RequestBody PaymentRequest request) {
         try {
-            PaymentResponse response = orderService.processPayment(request);
+            PaymentResponse response = paymentService.submitPayment(request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/order/payment/" + response.getPaymentId()))
+                    .body(ApiResponse.success(response.getMessage(), response));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(ApiResponse.error("Payment queue is full, please retry"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/payment/{paymentId}")
+    public ResponseEntity<ApiResponse<PaymentResponse>> getPayment(@PathVariable String paymentId) {
+        try {
+            PaymentResponse response = paymentService.getPayment(paymentId);
             return ResponseEntity.ok(ApiResponse.success(response));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
+    @PostMapping("/{orderId}/cancel")
+    public ResponseEntity<ApiResponse<Order>> cancelOrder(@PathVariable Long orderId) {
+        try {
+            Order order = orderService.cancelOrder(orderId);
+            return ResponseEntity.ok(ApiResponse.success("Order cancelled", order));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
     @GetMapping("/track/{orderId}")
     public ResponseEntity<ApiResponse<OrderTrackingResponse>> trackOrder(@PathVariable Long orderId) {
         try {
@@ -69,4 +104,19 @@ public class OrderController {
         List<Order> orders = orderService.getUserOrders(userId);
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
+    
+    /**
+     * Newest-first order history. Returns lightweight summaries unless details=true.
+     */
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<ApiResponse<?>> getUserOrderHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean details) {
+        if (details) {
+            return ResponseEntity.ok(ApiResponse.success(orderService.getUserOrderHistoryDetails(userId, before, size)));
+        }
+        return ResponseEntity.ok(ApiResponse.success(orderService.getUserOrderHistory(userId, before, size)));
+    }
 }
@@ -1,12 +1,22 @@
 package com.enterprise.shop.backend.controller;
 
+import com.enterprise.shop.backend.cache.CatalogSnapshot;
+import com.enterprise.shop.backend.cache.CatalogSnapshotCache;
 import com.enterprise.shop.backend.dto.ApiResponse;
-import com.enterprise.shop.backend.model.Product;
+import com.enterprise.shop.backend.dto.PageResponse;
+import com.enterprise.shop.backend.dto.ProductResponse;
 import com.enterprise.shop.backend.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -16,26 +26,133 @@ import java.util.List;
 public class ProductController {
     
     private final ProductService productService;
+    private final CatalogSnapshotCache snapshotCache;
     
+    // How long shared caches such as the gateway may reuse a catalog response
+    @Value("${catalog.response.shared-max-age-seconds:30}")
+    private long sharedMaxAgeSeconds;
+    
+    /**
+     * Without paging parameters the pre-rendered first page of the catalog is returned as a
+     * plain list, with a Link header to the next keyset page when there is more; with after
+     * and/or size a keyset page is returned instead
+     */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Product>>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
+    public ResponseEntity<?> getAllProducts(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (after != null || size != null) {
+            PageResponse<ProductResponse> page = productService.getProductsPage(after, size);
+            return ResponseEntity.ok(ApiResponse.success(page));
+        }
+        return snapshotResponse(snapshotCache.getActiveCatalog(), "/api/product", acceptEncoding);
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<ProductResponse>>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer limit) {
+        List<ProductResponse> products = productService.searchProducts(query, category, minPrice, maxPrice, limit);
         return ResponseEntity.ok(ApiResponse.success(products));
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Product>> getProduct(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<ProductResponse>> getProduct(@PathVariable Long id) {
         try {
-            Product product = productService.getProductById(id);
-            return ResponseEntity.ok(ApiResponse.success(product));
+            ProductResponse product = productService.getProductById(id);
+            return ResponseEntity.ok()
+                    .cacheControl(sharedCacheControl())
+                    .body(ApiResponse.success(product));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
     
     @GetMapping("/category/{category}")
-    public ResponseEntity<ApiResponse<List<Product>>> getProductsByCategory(@PathVariable String category) {
-        List<Product> products = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(ApiResponse.success(products));
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (after != null || size != null) {
+            PageResponse<ProductResponse> page = productService.getProductsByCategoryPage(category, after, size);
+            return ResponseEntity.ok(ApiResponse.success(page));
+        }
+        return snapshotResponse(snapshotCache.getCategory(category),
+                UriComponentsBuilder.fromPath("/api/product/category/{category}")
+                        .buildAndExpand(category).encode().toUriString(),
+                acceptEncoding);
+    }
+    
+    /**
+     * Serve pre-rendered catalog bytes as-is. The ETag lets Spring answer
+     * a matching If-None-Match with 304 before any body is written.
+     */
+    private ResponseEntity<byte[]> snapshotResponse(CatalogSnapshot snapshot, String path, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(sharedCacheControl())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (snapshot.nextAfter() != null) {
+            response.header(HttpHeaders.LINK, "<" + path + "?after=" + snapshot.nextAfter() + ">; rel=\"next\"");
+        }
+        
+        if (snapshot.hasGzipBody() && acceptsGzip(acceptEncoding)) {
+            return response
+                    .eTag(snapshot.gzipEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(snapshot.gzipBody());
+        }
+        return response
+                .eTag(snapshot.etag())
+                .body(snapshot.body());
+    }
+    
+    /**
+     * Replaces Spring Security's no-store: clients revalidate on every use (max-age=0),
+     * shared caches may serve the response for s-maxage without asking again
+     */
+    private CacheControl sharedCacheControl() {
+        return CacheControl.maxAge(Duration.ZERO).sMaxAge(Duration.ofSeconds(sharedMaxAgeSeconds));
+    }
+    
+    /**
+     * True when Accept-Encoding gives gzip a non-zero q-value, either by name or through "*".
+     * An explicit gzip entry wins over the wildcard.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double wildcard = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip")) {
+                return qValue(parts) > 0;
+            }
+            if (name.equals("*")) {
+                wildcard = qValue(parts);
+            }
+        }
+        return wildcard > 0;
+    }
+    
+    private static double qValue(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
     }
 }
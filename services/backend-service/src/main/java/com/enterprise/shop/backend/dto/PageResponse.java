@@ -0,0 +1,32 @@
+package com.enterprise.shop.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageResponse<T> {
+    private List<T> items;
+    private Long nextCursor;
+    private boolean hasMore;
+    
+    /**
+     * Build a keyset page from a query that fetched one row more than the page size
+     */
+    public static <T> PageResponse<T> fromLookahead(List<T> fetched, int size, Function<T, Long> cursorOf) {
+        boolean hasMore = fetched.size() > size;
+        List<T> items = hasMore ? List.copyOf(fetched.subList(0, size)) : fetched;
+        return PageResponse.<T>builder()
+                .items(items)
+                .nextCursor(hasMore ? cursorOf.apply(items.get(items.size() - 1)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+}
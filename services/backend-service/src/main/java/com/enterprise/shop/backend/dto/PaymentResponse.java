@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentResponse {
+    private String paymentId;
     private Long orderId;
     private String transactionId;
     private String status;
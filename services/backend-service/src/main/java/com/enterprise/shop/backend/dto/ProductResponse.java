@@ -0,0 +1,36 @@
+package com.enterprise.shop.backend.dto;
+
+import com.enterprise.shop.backend.model.Product;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Immutable copy of a product, safe to cache and hand to many callers at once
+ */
+@Value
+@Builder
+public class ProductResponse {
+    Long id;
+    String name;
+    String description;
+    BigDecimal price;
+    String imageUrl;
+    String category;
+    Integer stockQuantity;
+    Boolean active;
+    
+    public static ProductResponse from(Product product) {
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .imageUrl(product.getImageUrl())
+                .category(product.getCategory())
+                .stockQuantity(product.getStockQuantity())
+                .active(product.getActive())
+                .build();
+    }
+}
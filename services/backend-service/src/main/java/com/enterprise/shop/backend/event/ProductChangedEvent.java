@@ -0,0 +1,7 @@
+package com.enterprise.shop.backend.event;
+
+/**
+ * Published whenever a product row is inserted, updated or removed
+ */
+public record ProductChangedEvent(Long productId) {
+}
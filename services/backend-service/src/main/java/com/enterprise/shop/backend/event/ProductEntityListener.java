@@ -0,0 +1,25 @@
+package com.enterprise.shop.backend.event;
+
+import com.enterprise.shop.backend.model.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener that turns product writes into application events,
+ * so read-side caches can invalidate without every writer knowing about them
+ */
+@RequiredArgsConstructor
+public class ProductEntityListener {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onProductChanged(Product product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(product.getId()));
+    }
+}
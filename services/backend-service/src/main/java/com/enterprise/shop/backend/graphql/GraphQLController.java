@@ -3,6 +3,7 @@ package com.enterprise.shop.backend.graphql;
 import com.enterprise.shop.backend.dto.*;
 import com.enterprise.shop.backend.model.*;
 import com.enterprise.shop.backend.service.OrderService;
+import com.enterprise.shop.backend.service.PaymentService;
 import com.enterprise.shop.backend.service.ProductService;
 import com.enterprise.shop.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +12,7 @@ import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Controller
@@ -20,15 +22,31 @@ public class GraphQLController {
     private final UserService userService;
     private final ProductService productService;
     private final OrderService orderService;
+    private final PaymentService paymentService;
     
     // Queries
     @QueryMapping
-    public List<Product> products() {
-        return productService.getAllProducts();
+    public List<ProductResponse> products(@Argument Long after, @Argument Integer first) {
+        return productService.getProductsPage(after, first).getItems();
     }
     
     @QueryMapping
-    public Product product(@Argument Long id) {
+    public PageResponse<ProductResponse> productPage(@Argument Long after, @Argument Integer first) {
+        return productService.getProductsPage(after, first);
+    }
+    
+    @QueryMapping
+    public List<ProductResponse> searchProducts(
+            @Argument String query,
+            @Argument String category,
+            @Argument BigDecimal minPrice,
+            @Argument BigDecimal maxPrice,
+            @Argument Integer limit) {
+        return productService.searchProducts(query, category, minPrice, maxPrice, limit);
+    }
+    
+    @QueryMapping
+    public ProductResponse product(@Argument Long id) {
         return productService.getProductById(id);
     }
     
@@ -47,6 +65,19 @@ public class GraphQLController {
         return orderService.getUserOrders(userId);
     }
     
+    @QueryMapping
+    public PageResponse<OrderSummary> orderHistory(
+            @Argument Long userId,
+            @Argument Long before,
+            @Argument Integer first) {
+        return orderService.getUserOrderHistory(userId, before, first);
+    }
+    
+    @QueryMapping
+    public PaymentResponse payment(@Argument String paymentId) {
+        return paymentService.getPayment(paymentId);
+    }
+    
     @QueryMapping
     public OrderTrackingResponse orderTracking(@Argument Long orderId) {
         return orderService.trackOrder(orderId);
@@ -83,6 +114,11 @@ public class GraphQLController {
                 .build());
     }
     
+    @MutationMapping
+    public Order cancelOrder(@Argument Long orderId) {
+        return orderService.cancelOrder(orderId);
+    }
+    
     @MutationMapping
     public PaymentResponse processPayment(
             @Argument Long orderId,
@@ -90,7 +126,7 @@ public class GraphQLController {
             @Argument String cardHolderName,
             @Argument String expiryDate,
             @Argument String cvv) {
-        return orderService.processPayment(PaymentRequest.builder()
+        return paymentService.submitPayment(PaymentRequest.builder()
                 .orderId(orderId)
                 .cardNumber(cardNumber)
                 .cardHolderName(cardHolderName)
@@ -0,0 +1,81 @@
+package com.enterprise.shop.backend.idempotency;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request whose body has been read up front, so it can be hashed and still be
+ * read again by the controller
+ */
+class CachedBodyRequest extends HttpServletRequestWrapper {
+    
+    private final byte[] body;
+    
+    CachedBodyRequest(HttpServletRequest request) throws IOException {
+        super(request);
+        this.body = request.getInputStream().readAllBytes();
+    }
+    
+    byte[] getBody() {
+        return body;
+    }
+    
+    @Override
+    public ServletInputStream getInputStream() {
+        ByteArrayInputStream in = new ByteArrayInputStream(body);
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+            
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, len);
+            }
+            
+            @Override
+            public boolean isFinished() {
+                return in.available() == 0;
+            }
+            
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+            
+            /**
+             * The whole body is already in memory, so it is available at once
+             */
+            @Override
+            public void setReadListener(ReadListener listener) {
+                try {
+                    if (in.available() > 0) {
+                        listener.onDataAvailable();
+                    }
+                    if (in.available() == 0) {
+                        listener.onAllDataRead();
+                    }
+                } catch (Throwable t) {
+                    listener.onError(t);
+                }
+            }
+        };
+    }
+    
+    @Override
+    public BufferedReader getReader() {
+        Charset charset = getCharacterEncoding() != null
+                ? Charset.forName(getCharacterEncoding()) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+}
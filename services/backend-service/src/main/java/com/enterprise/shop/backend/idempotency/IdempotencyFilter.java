@@ -0,0 +1,148 @@
+package com.enterprise.shop.backend.idempotency;
+
+import com.enterprise.shop.backend.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Honours the Idempotency-Key header on non-idempotent endpoints: the first request
+ * with a key executes and its response is stored, later requests with the same key
+ * get the stored response back without re-executing the transaction.
+ * Keys are scoped to the calling service, and a key reused with a different
+ * request body is refused with 422.
+ */
+@Component
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+    
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final String CALLER_SERVICE_HEADER = "X-Caller-Service";
+    
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Set<String> paths;
+    
+    public IdempotencyFilter(
+            IdempotencyStore store,
+            ObjectMapper objectMapper,
+            @Value("${idempotency.paths:/api/order/submit,/api/order/payment}") String[] paths) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.paths = Set.of(paths);
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        String key = callerOf(request) + ":" + request.getRequestURI() + ":" + request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        String requestHash = sha256(cachedRequest.getBody());
+        
+        IdempotencyStore.StoredResponse existing = store.claim(key, requestHash);
+        if (existing != null) {
+            if (!existing.requestHash().equals(requestHash)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different request");
+            } else if (IdempotencyStore.isInProgress(existing)) {
+                writeError(response, HttpStatus.CONFLICT,
+                        "A request with this Idempotency-Key is already in progress");
+            } else {
+                log.debug("Replaying stored response for {}", key);
+                replay(existing, response);
+            }
+            return;
+        }
+        
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(cachedRequest, wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            store.release(key);
+            throw e;
+        }
+        
+        if (isDefinitive(wrapper.getStatus())) {
+            store.complete(key, new IdempotencyStore.StoredResponse(
+                    requestHash,
+                    wrapper.getStatus(),
+                    wrapper.getContentType(),
+                    wrapper.getHeader(HttpHeaders.LOCATION),
+                    wrapper.getContentAsByteArray()));
+        } else {
+            store.release(key);
+        }
+        wrapper.copyBodyToResponse();
+    }
+    
+    /**
+     * Only successes and conflicts the client cannot retry its way out of are remembered.
+     * Other failures rolled back, so a retry with the same key executes again instead of
+     * replaying what may have been a transient error.
+     */
+    static boolean isDefinitive(int status) {
+        return (status >= 200 && status < 300)
+                || status == HttpStatus.CONFLICT.value()
+                || status == HttpStatus.UNPROCESSABLE_ENTITY.value();
+    }
+    
+    // The middleware names the calling service; direct callers share one scope
+    private static String callerOf(HttpServletRequest request) {
+        String caller = request.getHeader(CALLER_SERVICE_HEADER);
+        if (caller != null && !caller.isBlank()) {
+            return caller;
+        }
+        return request.getRemoteUser() != null ? request.getRemoteUser() : "anonymous";
+    }
+    
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        if (stored.location() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.location());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+    
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiResponse.error(message));
+    }
+}
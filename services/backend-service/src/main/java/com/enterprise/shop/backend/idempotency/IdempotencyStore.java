@@ -0,0 +1,56 @@
+package com.enterprise.shop.backend.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, expiring record of responses keyed by Idempotency-Key.
+ * A key is claimed before the request executes, so concurrent duplicates
+ * can be told apart from replays of a finished request. Every entry carries
+ * the hash of the request that claimed it, so a key reused for a different
+ * payload can be refused.
+ */
+@Component
+public class IdempotencyStore {
+    
+    private static final int IN_PROGRESS = 0;
+    
+    private final Cache<String, StoredResponse> responses;
+    
+    public IdempotencyStore(
+            @Value("${idempotency.max-entries:100000}") long maxEntries,
+            @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+    
+    /**
+     * Try to claim a key for execution.
+     *
+     * @return null if the caller now owns the key, otherwise the existing entry
+     */
+    public StoredResponse claim(String key, String requestHash) {
+        return responses.asMap().putIfAbsent(key, new StoredResponse(requestHash, IN_PROGRESS, null, null, null));
+    }
+    
+    public void complete(String key, StoredResponse response) {
+        responses.put(key, response);
+    }
+    
+    public void release(String key) {
+        responses.invalidate(key);
+    }
+    
+    public static boolean isInProgress(StoredResponse response) {
+        return response.status() == IN_PROGRESS;
+    }
+    
+    public record StoredResponse(String requestHash, int status, String contentType, String location, byte[] body) {
+    }
+}
@@ -19,14 +19,15 @@ import java.util.List;
 public class Cart {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "carts_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true)
     private Long userId;
     
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "cart_id")
+    @JoinColumn(name = "cart_id", nullable = false)
     @Builder.Default
     private List<CartItem> items = new ArrayList<>();
     
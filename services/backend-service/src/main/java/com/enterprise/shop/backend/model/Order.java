@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_user_id", columnList = "user_id, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -20,14 +22,15 @@ import java.util.List;
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
     private Long userId;
     
     @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "order_id")
+    @JoinColumn(name = "order_id", nullable = false)
     @Builder.Default
     private List<OrderItem> items = new ArrayList<>();
     
@@ -42,6 +45,13 @@ public class Order {
     
     private String paymentStatus;
     
+    // Whether the order currently holds a stock reservation for its items
+    private Boolean stockReserved;
+    
+    // Optimistic lock, so a cancel or payment racing another write fails instead of overwriting it
+    @Version
+    private Long version;
+    
     @Column(nullable = false)
     private LocalDateTime createdAt;
     
@@ -1,5 +1,6 @@
 package com.enterprise.shop.backend.model;
 
+import com.enterprise.shop.backend.event.ProductEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -9,7 +10,11 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_active_id", columnList = "active, id"),
+    @Index(name = "idx_products_category_id", columnList = "category, id")
+})
+@EntityListeners(ProductEntityListener.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -17,7 +22,8 @@ import java.math.BigDecimal;
 public class Product {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -0,0 +1,17 @@
+package com.enterprise.shop.backend.payment;
+
+import com.enterprise.shop.backend.dto.PaymentRequest;
+
+/**
+ * Charges a card with an external payment provider. Implementations may block;
+ * they are only ever called from the payment worker pool.
+ */
+public interface PaymentGateway {
+    
+    PaymentResult charge(PaymentRequest request);
+    
+    /**
+     * Reverse a successful charge in full, e.g. when its result could not be recorded
+     */
+    PaymentResult refund(String transactionId, PaymentRequest request);
+}
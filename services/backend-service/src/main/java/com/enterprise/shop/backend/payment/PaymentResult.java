@@ -0,0 +1,12 @@
+package com.enterprise.shop.backend.payment;
+
+public record PaymentResult(boolean success, String transactionId, String message) {
+    
+    public static PaymentResult approved(String transactionId) {
+        return new PaymentResult(true, transactionId, "Payment processed successfully");
+    }
+    
+    public static PaymentResult declined(String message) {
+        return new PaymentResult(false, null, message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.enterprise.shop.backend.payment;
+
+import com.enterprise.shop.backend.dto.PaymentRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Local stand-in for a real provider: always approves unless the card number
+ * ends with 0, after an optional artificial delay
+ */
+@Component
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGateway {
+    
+    @Value("${payment.gateway.simulated-latency-ms:0}")
+    private long simulatedLatencyMs;
+    
+    @Override
+    public PaymentResult charge(PaymentRequest request) {
+        if (simulatedLatencyMs > 0) {
+            try {
+                Thread.sleep(simulatedLatencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return PaymentResult.declined("Payment interrupted");
+            }
+        }
+        
+        boolean approved = request.getCardNumber() == null ||
+                           !request.getCardNumber().endsWith("0");
+        return approved
+                ? PaymentResult.approved(UUID.randomUUID().toString())
+                : PaymentResult.declined("Payment processing failed");
+    }
+    
+    @Override
+    public PaymentResult refund(String transactionId, PaymentRequest request) {
+        log.info("Refunding transaction {} for order {}", transactionId, request.getOrderId());
+        return new PaymentResult(true, UUID.randomUUID().toString(), "Payment refunded");
+    }
+}
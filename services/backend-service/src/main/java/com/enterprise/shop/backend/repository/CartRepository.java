@@ -1,6 +1,7 @@
 package com.enterprise.shop.backend.repository;
 
 import com.enterprise.shop.backend.model.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +9,6 @@ import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
-    Optional<Cart> findByUserId(Long userId);
+    @EntityGraph(attributePaths = "items")
+    Optional<Cart> findWithItemsByUserId(Long userId);
 }
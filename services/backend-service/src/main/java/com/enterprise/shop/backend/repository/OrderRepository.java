@@ -1,12 +1,75 @@
 package com.enterprise.shop.backend.repository;
 
+import com.enterprise.shop.backend.dto.OrderSummary;
 import com.enterprise.shop.backend.model.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserId(Long userId);
+    // Fetch items in the same query instead of one lazy load per order
+    @EntityGraph(attributePaths = "items")
+    List<Order> findWithItemsByUserId(Long userId);
+    
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+    
+    @EntityGraph(attributePaths = "items")
+    List<Order> findWithItemsByIdInOrderByIdDesc(List<Long> ids);
+    
+    // Newest-first keyset page of order headers; items are counted, not loaded
+    @Query("select new com.enterprise.shop.backend.dto.OrderSummary(" +
+           "o.id, o.status, o.totalAmount, o.createdAt, size(o.items)) " +
+           "from Order o where o.userId = :userId and o.id < :beforeId order by o.id desc")
+    List<OrderSummary> findSummariesByUserId(@Param("userId") Long userId,
+                                             @Param("beforeId") Long beforeId,
+                                             Limit limit);
+    
+    /**
+     * Move an order into PROCESSING unless it is cancelled, paid or already being paid.
+     * Returns 1 for exactly one of any number of concurrent callers.
+     */
+    @Modifying
+    @Query("update Order o set o.paymentStatus = 'PROCESSING', o.updatedAt = :now, o.version = o.version + 1 " +
+           "where o.id = :id and o.status <> :cancelled " +
+           "and (o.paymentStatus is null or o.paymentStatus not in ('PROCESSING', 'COMPLETED'))")
+    int claimForPayment(@Param("id") Long id, @Param("now") LocalDateTime now,
+                        @Param("cancelled") Order.OrderStatus cancelled);
+    
+    /**
+     * Move a PROCESSING order to FAILED so it can be paid again or cancelled
+     */
+    @Modifying
+    @Query("update Order o set o.paymentStatus = 'FAILED', o.updatedAt = :now, o.version = o.version + 1 " +
+           "where o.id = :id and o.paymentStatus = 'PROCESSING'")
+    int releasePaymentClaim(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Hand back a PROCESSING claim whose payment never started, leaving the order PENDING
+     */
+    @Modifying
+    @Query("update Order o set o.paymentStatus = 'PENDING', o.updatedAt = :now, o.version = o.version + 1 " +
+           "where o.id = :id and o.paymentStatus = 'PROCESSING'")
+    int abortPaymentClaim(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * As releasePaymentClaim, but only if the order has been processing since before the cutoff
+     */
+    @Modifying
+    @Query("update Order o set o.paymentStatus = 'FAILED', o.updatedAt = :now, o.version = o.version + 1 " +
+           "where o.id = :id and o.paymentStatus = 'PROCESSING' and o.updatedAt < :cutoff")
+    int releaseStalledPaymentClaim(@Param("id") Long id, @Param("cutoff") LocalDateTime cutoff,
+                                   @Param("now") LocalDateTime now);
+    
+    @Query("select o.id from Order o where o.paymentStatus = 'PROCESSING' and o.updatedAt < :cutoff")
+    List<Long> findStalledPaymentIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
 }
@@ -1,7 +1,11 @@
 package com.enterprise.shop.backend.repository;
 
 import com.enterprise.shop.backend.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +14,17 @@ import java.util.List;
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategory(String category);
     List<Product> findByActiveTrue();
+    
+    // Keyset pagination: seek past the last seen id instead of OFFSET scans
+    List<Product> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+    List<Product> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long afterId, Limit limit);
+    
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity - :quantity " +
+           "where p.id = :productId and p.stockQuantity >= :quantity")
+    int reserveStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+    
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity + :quantity where p.id = :productId")
+    int releaseStock(@Param("productId") Long productId, @Param("quantity") int quantity);
 }
@@ -0,0 +1,241 @@
+package com.enterprise.shop.backend.search;
+
+import com.enterprise.shop.backend.dto.ProductResponse;
+import com.enterprise.shop.backend.event.ProductChangedEvent;
+import com.enterprise.shop.backend.model.Product;
+import com.enterprise.shop.backend.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, description and category.
+ * Query tokens of at least min-prefix-length characters are matched as a prefix
+ * (exact matches score higher), shorter ones only as whole terms. All tokens must
+ * match, and results are ranked by field-weighted tf-idf.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+    
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float CATEGORY_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    
+    private final ProductRepository productRepository;
+    
+    @Value("${catalog.search.min-prefix-length:3}")
+    private int minPrefixLength;
+    
+    @Value("${catalog.search.max-results:100}")
+    private int maxResults;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        long start = System.currentTimeMillis();
+        List<Product> products = productRepository.findByActiveTrue();
+        
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            products.forEach(this::addDocument);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} products ({} terms) in {}ms",
+                products.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.productId() == null) {
+            return;
+        }
+        Optional<Product> product = productRepository.findById(event.productId());
+        
+        lock.writeLock().lock();
+        try {
+            removeDocument(event.productId());
+            product.filter(p -> Boolean.TRUE.equals(p.getActive())).ifPresent(this::addDocument);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Search active products. Category and price bounds are optional filters.
+     */
+    public List<ProductResponse> search(String query, String category,
+                                BigDecimal minPrice, BigDecimal maxPrice, Integer limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        int resultLimit = limit == null || limit <= 0 ? maxResults : Math.min(limit, maxResults);
+        double min = minPrice != null ? minPrice.doubleValue() : Double.NEGATIVE_INFINITY;
+        double max = maxPrice != null ? maxPrice.doubleValue() : Double.POSITIVE_INFINITY;
+        String categoryFilter = category != null ? category.toLowerCase(Locale.ROOT) : null;
+        
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Float>> perToken = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Map<Long, Float> matches = matchToken(token);
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+                perToken.add(matches);
+            }
+            
+            // Intersect starting from the most selective token
+            perToken.sort(Comparator.comparingInt(Map::size));
+            Map<Long, Float> scores = perToken.get(0);
+            
+            PriorityQueue<Map.Entry<Long, Float>> top = new PriorityQueue<>(
+                    resultLimit + 1, Map.Entry.comparingByValue());
+            
+            candidates:
+            for (Map.Entry<Long, Float> candidate : scores.entrySet()) {
+                float score = candidate.getValue();
+                for (int i = 1; i < perToken.size(); i++) {
+                    Float tokenScore = perToken.get(i).get(candidate.getKey());
+                    if (tokenScore == null) {
+                        continue candidates;
+                    }
+                    score += tokenScore;
+                }
+                
+                IndexedProduct doc = documents.get(candidate.getKey());
+                if (doc.price < min || doc.price > max
+                        || (categoryFilter != null && !categoryFilter.equals(doc.category))) {
+                    continue;
+                }
+                
+                top.offer(Map.entry(candidate.getKey(), score));
+                if (top.size() > resultLimit) {
+                    top.poll();
+                }
+            }
+            
+            ProductResponse[] results = new ProductResponse[top.size()];
+            for (int i = results.length - 1; i >= 0; i--) {
+                results[i] = documents.get(top.poll().getKey()).product;
+            }
+            return Arrays.asList(results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Collect idf-weighted scores for every indexed term starting with the token.
+     * Tokens shorter than min-prefix-length only match whole terms, which keeps one or
+     * two letters from expanding to most of the vocabulary; longer prefixes always
+     * expand in full, so a match is never silently dropped.
+     */
+    private Map<Long, Float> matchToken(String token) {
+        Map<Long, Float> matches = new HashMap<>();
+        if (token.length() < minPrefixLength) {
+            Map<Long, Float> docs = postings.get(token);
+            if (docs != null) {
+                addMatches(matches, token, token, docs);
+            }
+            return matches;
+        }
+        for (Map.Entry<String, Map<Long, Float>> term
+                : postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            addMatches(matches, token, term.getKey(), term.getValue());
+        }
+        return matches;
+    }
+    
+    private void addMatches(Map<Long, Float> matches, String token, String term, Map<Long, Float> docs) {
+        float factor = termFactor(token, term, docs);
+        for (Map.Entry<Long, Float> posting : docs.entrySet()) {
+            matches.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+        }
+    }
+    
+    private float termFactor(String token, String term, Map<Long, Float> docs) {
+        float idf = (float) Math.log(1.0 + (double) documents.size() / docs.size());
+        return term.equals(token) ? idf : idf * PREFIX_MATCH_FACTOR;
+    }
+    
+    private void addDocument(Product product) {
+        Map<String, Float> termWeights = new HashMap<>();
+        addTerms(termWeights, product.getName(), NAME_WEIGHT);
+        addTerms(termWeights, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(termWeights, product.getDescription(), DESCRIPTION_WEIGHT);
+        
+        termWeights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), weight));
+        
+        documents.put(product.getId(), new IndexedProduct(
+                ProductResponse.from(product),
+                product.getCategory() != null ? product.getCategory().toLowerCase(Locale.ROOT) : null,
+                product.getPrice() != null ? product.getPrice().doubleValue() : 0.0,
+                termWeights.keySet().toArray(new String[0])));
+    }
+    
+    private void removeDocument(Long productId) {
+        IndexedProduct existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.terms) {
+            Map<Long, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(productId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+    
+    private static void addTerms(Map<String, Float> termWeights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            termWeights.merge(token, weight, Float::sum);
+        }
+    }
+    
+    /**
+     * Lower-case and split on anything that is not a letter or digit
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+    
+    private record IndexedProduct(ProductResponse product, String category, double price, String[] terms) {
+    }
+}
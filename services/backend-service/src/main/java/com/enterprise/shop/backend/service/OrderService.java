@@ -5,6 +5,8 @@ import com.enterprise.shop.backend.model.*;
 import com.enterprise.shop.backend.repository.CartRepository;
 import com.enterprise.shop.backend.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,7 +14,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -21,16 +22,23 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final CartRepository cartRepository;
     private final ProductService productService;
+    private final StockReservationService stockReservationService;
+    
+    @Value("${order.history.default-size:20}")
+    private int defaultHistoryPageSize;
+    
+    @Value("${order.history.max-size:100}")
+    private int maxHistoryPageSize;
     
     @Transactional
     public Cart addToCart(AddToCartRequest request) {
-        Cart cart = cartRepository.findByUserId(request.getUserId())
+        Cart cart = cartRepository.findWithItemsByUserId(request.getUserId())
                 .orElse(Cart.builder()
                         .userId(request.getUserId())
                         .items(new ArrayList<>())
                         .build());
         
-        Product product = productService.getProductById(request.getProductId());
+        ProductResponse product = productService.getProductById(request.getProductId());
         
         // Check if product already in cart
         CartItem existingItem = cart.getItems().stream()
@@ -54,7 +62,7 @@ public class OrderService {
     }
     
     public Cart getCart(Long userId) {
-        return cartRepository.findByUserId(userId)
+        return cartRepository.findWithItemsByUserId(userId)
                 .orElse(Cart.builder()
                         .userId(userId)
                         .items(new ArrayList<>())
@@ -63,7 +71,7 @@ public class OrderService {
     
     @Transactional
     public Order submitOrder(OrderSubmitRequest request) {
-        Cart cart = cartRepository.findByUserId(request.getUserId())
+        Cart cart = cartRepository.findWithItemsByUserId(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("Cart is empty"));
         
         if (cart.getItems().isEmpty()) {
@@ -87,6 +95,7 @@ public class OrderService {
                 .status(Order.OrderStatus.PENDING)
                 .shippingAddress(request.getShippingAddress())
                 .paymentStatus("PENDING")
+                .stockReserved(true)
                 .build();
         
         Order savedOrder = orderRepository.save(order);
@@ -95,39 +104,118 @@ public class OrderService {
         cart.getItems().clear();
         cartRepository.save(cart);
         
+        // Reserve last, so the product row locks are held only until commit
+        stockReservationService.reserve(savedOrder.getItems());
+        
         return savedOrder;
     }
     
+    /**
+     * Validate an order for payment and make sure it holds its stock before the gateway is called.
+     * The order is claimed with a conditional UPDATE, so of any number of concurrent attempts
+     * exactly one proceeds; a failed stock reservation rolls the claim back.
+     */
     @Transactional
-    public PaymentResponse processPayment(PaymentRequest request) {
-        Order order = orderRepository.findById(request.getOrderId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+    public void preparePayment(Long orderId) {
+        if (orderRepository.claimForPayment(orderId, LocalDateTime.now(), Order.OrderStatus.CANCELLED) == 0) {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+                throw new RuntimeException("Order has been cancelled");
+            }
+            if ("COMPLETED".equals(order.getPaymentStatus())) {
+                throw new RuntimeException("Order has already been paid");
+            }
+            throw new RuntimeException("Payment already in progress");
+        }
         
-        // Simulate payment processing
-        boolean paymentSuccess = simulatePayment(request);
+        // A previous failed attempt released the stock; take it again before charging
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (!Boolean.TRUE.equals(order.getStockReserved())) {
+            stockReservationService.reserve(order.getItems());
+            order.setStockReserved(true);
+            orderRepository.save(order);
+        }
+    }
+    
+    /**
+     * Record the gateway's answer. Only an order still waiting for it is updated; one that
+     * was released in the meantime (see releaseStalledPayment) is left alone.
+     */
+    @Transactional
+    public void completePayment(Long orderId, boolean success) {
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (!"PROCESSING".equals(order.getPaymentStatus())) {
+            throw new RuntimeException("Order " + orderId + " is no longer awaiting a payment result");
+        }
         
-        if (paymentSuccess) {
+        if (success) {
             order.setPaymentStatus("COMPLETED");
             order.setStatus(Order.OrderStatus.CONFIRMED);
-            orderRepository.save(order);
-            
-            return PaymentResponse.builder()
-                    .orderId(order.getId())
-                    .transactionId(UUID.randomUUID().toString())
-                    .status("SUCCESS")
-                    .message("Payment processed successfully")
-                    .build();
         } else {
             order.setPaymentStatus("FAILED");
-            orderRepository.save(order);
-            
-            return PaymentResponse.builder()
-                    .orderId(order.getId())
-                    .transactionId(null)
-                    .status("FAILED")
-                    .message("Payment processing failed")
-                    .build();
+            stockReservationService.release(order.getItems());
+            order.setStockReserved(false);
+        }
+        orderRepository.save(order);
+    }
+    
+    /**
+     * Put a PROCESSING order back into a retryable FAILED state and release its stock.
+     * Returns false if the order was not processing.
+     */
+    @Transactional
+    public boolean failPayment(Long orderId) {
+        return releaseClaimedStock(orderId, orderRepository.releasePaymentClaim(orderId, LocalDateTime.now()));
+    }
+    
+    /**
+     * As failPayment, for an order that has been PROCESSING since before the cutoff
+     */
+    @Transactional
+    public boolean releaseStalledPayment(Long orderId, LocalDateTime cutoff) {
+        return releaseClaimedStock(orderId,
+                orderRepository.releaseStalledPaymentClaim(orderId, cutoff, LocalDateTime.now()));
+    }
+    
+    public List<Long> findStalledPayments(LocalDateTime cutoff, int limit) {
+        return orderRepository.findStalledPaymentIds(cutoff, Limit.of(limit));
+    }
+    
+    /**
+     * Undo preparePayment when the payment could not be enqueued. Only a PROCESSING order
+     * is touched, so a result recorded meanwhile is never overwritten.
+     *
+     * @return false if the order was no longer PROCESSING
+     */
+    @Transactional
+    public boolean abortPayment(Long orderId) {
+        return orderRepository.abortPaymentClaim(orderId, LocalDateTime.now()) > 0;
+    }
+    
+    @Transactional
+    public Order cancelOrder(Long orderId) {
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            return order;
+        }
+        if (order.getStatus() == Order.OrderStatus.SHIPPED || order.getStatus() == Order.OrderStatus.DELIVERED) {
+            throw new RuntimeException("Order can no longer be cancelled");
+        }
+        if ("PROCESSING".equals(order.getPaymentStatus())) {
+            throw new RuntimeException("Payment in progress");
+        }
+        
+        if (Boolean.TRUE.equals(order.getStockReserved())) {
+            stockReservationService.release(order.getItems());
+            order.setStockReserved(false);
         }
+        order.setStatus(Order.OrderStatus.CANCELLED);
+        return orderRepository.save(order);
     }
     
     public OrderTrackingResponse trackOrder(Long orderId) {
@@ -145,13 +233,49 @@ public class OrderService {
     }
     
     public List<Order> getUserOrders(Long userId) {
-        return orderRepository.findByUserId(userId);
+        return orderRepository.findWithItemsByUserId(userId);
     }
     
-    private boolean simulatePayment(PaymentRequest request) {
-        // Dummy payment - always succeeds unless card number ends with 0
-        return request.getCardNumber() == null || 
-               !request.getCardNumber().endsWith("0");
+    public PageResponse<OrderSummary> getUserOrderHistory(Long userId, Long before, Integer size) {
+        int pageSize = resolveHistoryPageSize(size);
+        List<OrderSummary> fetched = orderRepository.findSummariesByUserId(
+                userId, before != null ? before : Long.MAX_VALUE, Limit.of(pageSize + 1));
+        return PageResponse.fromLookahead(fetched, pageSize, OrderSummary::getId);
+    }
+    
+    /**
+     * Same page as getUserOrderHistory, with items loaded for just the orders on the page
+     */
+    public PageResponse<Order> getUserOrderHistoryDetails(Long userId, Long before, Integer size) {
+        PageResponse<OrderSummary> summaries = getUserOrderHistory(userId, before, size);
+        List<Long> ids = summaries.getItems().stream().map(OrderSummary::getId).toList();
+        List<Order> orders = ids.isEmpty() ? List.of() : orderRepository.findWithItemsByIdInOrderByIdDesc(ids);
+        return PageResponse.<Order>builder()
+                .items(orders)
+                .nextCursor(summaries.getNextCursor())
+                .hasMore(summaries.isHasMore())
+                .build();
+    }
+    
+    private boolean releaseClaimedStock(Long orderId, int released) {
+        if (released == 0) {
+            return false;
+        }
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (Boolean.TRUE.equals(order.getStockReserved())) {
+            stockReservationService.release(order.getItems());
+            order.setStockReserved(false);
+            orderRepository.save(order);
+        }
+        return true;
+    }
+    
+    private int resolveHistoryPageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultHistoryPageSize;
+        }
+        return Math.min(size, maxHistoryPageSize);
     }
     
     private List<OrderTrackingResponse.TrackingEvent> generateTimeline(Order order) {
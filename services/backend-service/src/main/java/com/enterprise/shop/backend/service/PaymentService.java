@@ -0,0 +1,172 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.dto.PaymentRequest;
+import com.enterprise.shop.backend.dto.PaymentResponse;
+import com.enterprise.shop.backend.payment.PaymentGateway;
+import com.enterprise.shop.backend.payment.PaymentResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous payment pipeline. Submitting only validates the order and enqueues a job;
+ * the gateway call runs on the payment worker pool without holding a request thread
+ * or a database connection, and clients poll the payment id for the outcome.
+ */
+@Service
+@Slf4j
+public class PaymentService {
+    
+    private final OrderService orderService;
+    private final PaymentGateway paymentGateway;
+    private final ThreadPoolTaskExecutor paymentExecutor;
+    private final Cache<String, PaymentResponse> payments;
+    private final long processingTimeoutSeconds;
+    private final int sweepBatchSize;
+    
+    public PaymentService(
+            OrderService orderService,
+            PaymentGateway paymentGateway,
+            ThreadPoolTaskExecutor paymentExecutor,
+            @Value("${payment.status.max-entries:100000}") long maxEntries,
+            @Value("${payment.status.ttl-seconds:3600}") long ttlSeconds,
+            @Value("${payment.processing.timeout-seconds:900}") long processingTimeoutSeconds,
+            @Value("${payment.processing.sweep-batch-size:100}") int sweepBatchSize) {
+        this.orderService = orderService;
+        this.paymentGateway = paymentGateway;
+        this.paymentExecutor = paymentExecutor;
+        this.processingTimeoutSeconds = processingTimeoutSeconds;
+        this.sweepBatchSize = sweepBatchSize;
+        this.payments = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+    
+    /**
+     * Accept a payment for asynchronous processing.
+     *
+     * @throws RejectedExecutionException when the payment queue is full
+     */
+    public PaymentResponse submitPayment(PaymentRequest request) {
+        orderService.preparePayment(request.getOrderId());
+        
+        String paymentId = UUID.randomUUID().toString();
+        PaymentResponse accepted = PaymentResponse.builder()
+                .paymentId(paymentId)
+                .orderId(request.getOrderId())
+                .status("PROCESSING")
+                .message("Payment accepted for processing")
+                .build();
+        payments.put(paymentId, accepted);
+        
+        try {
+            paymentExecutor.execute(() -> process(paymentId, request));
+        } catch (RejectedExecutionException e) {
+            log.warn("Payment queue full, rejecting payment for order {}", request.getOrderId());
+            payments.invalidate(paymentId);
+            if (!orderService.abortPayment(request.getOrderId())) {
+                log.warn("Order {} left PROCESSING before its payment claim could be aborted",
+                        request.getOrderId());
+            }
+            throw e;
+        }
+        return accepted;
+    }
+    
+    public PaymentResponse getPayment(String paymentId) {
+        PaymentResponse payment = payments.getIfPresent(paymentId);
+        if (payment == null) {
+            throw new RuntimeException("Payment not found");
+        }
+        return payment;
+    }
+    
+    private void process(String paymentId, PaymentRequest request) {
+        PaymentResult result;
+        try {
+            result = paymentGateway.charge(request);
+        } catch (Exception e) {
+            log.error("Payment gateway error for order {}: {}", request.getOrderId(), e.getMessage());
+            result = PaymentResult.declined("Payment gateway error");
+        }
+        
+        String status = result.success() ? "SUCCESS" : "FAILED";
+        String message = result.message();
+        try {
+            orderService.completePayment(request.getOrderId(), result.success());
+        } catch (Exception e) {
+            log.error("Failed to record payment {} (transaction {}) for order {}: {}",
+                    paymentId, result.transactionId(), request.getOrderId(), e.getMessage());
+            status = "ERROR";
+            message = "Failed to record payment result";
+            // The card has been charged but the order does not show it, so give the money back
+            if (result.success() && refund(result.transactionId(), request)) {
+                status = "REFUNDED";
+                message = "Payment could not be recorded and was refunded";
+            }
+            releaseOrder(request.getOrderId());
+        }
+        
+        payments.put(paymentId, PaymentResponse.builder()
+                .paymentId(paymentId)
+                .orderId(request.getOrderId())
+                .transactionId(result.transactionId())
+                .status(status)
+                .message(message)
+                .build());
+    }
+    
+    /**
+     * Release orders whose payment worker died or lost its result, so they do not stay
+     * PROCESSING (and hold their stock) forever
+     */
+    @Scheduled(fixedDelayString = "${payment.processing.sweep-interval-ms:60000}")
+    public void releaseStalledPayments() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(processingTimeoutSeconds);
+        for (Long orderId : orderService.findStalledPayments(cutoff, sweepBatchSize)) {
+            try {
+                if (orderService.releaseStalledPayment(orderId, cutoff)) {
+                    log.warn("Released order {} after {}s in PROCESSING", orderId, processingTimeoutSeconds);
+                }
+            } catch (Exception e) {
+                log.error("Failed to release stalled payment for order {}: {}", orderId, e.getMessage());
+            }
+        }
+    }
+    
+    private boolean refund(String transactionId, PaymentRequest request) {
+        try {
+            PaymentResult refund = paymentGateway.refund(transactionId, request);
+            if (refund.success()) {
+                log.warn("Refunded transaction {} for order {} after failing to record it",
+                        transactionId, request.getOrderId());
+                return true;
+            }
+            log.error("Refund of transaction {} ({} for order {}) declined, needs manual reconciliation: {}",
+                    transactionId, request.getAmount(), request.getOrderId(), refund.message());
+        } catch (Exception e) {
+            log.error("Refund of transaction {} ({} for order {}) failed, needs manual reconciliation: {}",
+                    transactionId, request.getAmount(), request.getOrderId(), e.getMessage());
+        }
+        return false;
+    }
+    
+    // Put the order back into a retryable state; if that fails too the sweep picks it up
+    private void releaseOrder(Long orderId) {
+        try {
+            orderService.failPayment(orderId);
+        } catch (Exception e) {
+            log.error("Failed to release order {} after a payment error: {}", orderId, e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.enterprise.shop.backend.service;
 
+import com.enterprise.shop.backend.cache.CatalogListing;
+import com.enterprise.shop.backend.cache.ProductCatalogCache;
+import com.enterprise.shop.backend.dto.PageResponse;
+import com.enterprise.shop.backend.dto.ProductResponse;
 import com.enterprise.shop.backend.model.Product;
 import com.enterprise.shop.backend.repository.ProductRepository;
+import com.enterprise.shop.backend.search.ProductSearchIndex;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -14,6 +21,14 @@ import java.util.List;
 public class ProductService {
     
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchIndex searchIndex;
+    
+    @Value("${catalog.page.default-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${catalog.page.max-size:100}")
+    private int maxPageSize;
     
     @PostConstruct
     public void initSampleProducts() {
@@ -96,16 +111,47 @@ public class ProductService {
         }
     }
     
-    public List<Product> getAllProducts() {
-        return productRepository.findByActiveTrue();
+    public CatalogListing getActiveListing() {
+        return catalogCache.getActiveListing(productRepository::findByActiveTrue);
+    }
+    
+    public ProductResponse getProductById(Long id) {
+        ProductResponse product = catalogCache.getProduct(id, key -> productRepository.findById(key).orElse(null));
+        if (product == null) {
+            throw new RuntimeException("Product not found");
+        }
+        return product;
+    }
+    
+    public CatalogListing getCategoryListing(String category) {
+        return catalogCache.getCategoryListing(category, () -> productRepository.findByCategory(category));
+    }
+    
+    public PageResponse<ProductResponse> getProductsPage(Long after, Integer size) {
+        long afterId = after != null ? after : 0L;
+        int pageSize = resolvePageSize(size);
+        List<ProductResponse> fetched = catalogCache.getActivePage(afterId, pageSize, () ->
+                productRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1)));
+        return PageResponse.fromLookahead(fetched, pageSize, ProductResponse::getId);
     }
     
-    public Product getProductById(Long id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+    public PageResponse<ProductResponse> getProductsByCategoryPage(String category, Long after, Integer size) {
+        long afterId = after != null ? after : 0L;
+        int pageSize = resolvePageSize(size);
+        List<ProductResponse> fetched = catalogCache.getCategoryPage(category, afterId, pageSize, () ->
+                productRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(category, afterId, Limit.of(pageSize + 1)));
+        return PageResponse.fromLookahead(fetched, pageSize, ProductResponse::getId);
     }
     
-    public List<Product> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category);
+    public List<ProductResponse> searchProducts(String query, String category,
+                                        BigDecimal minPrice, BigDecimal maxPrice, Integer limit) {
+        return searchIndex.search(query, category, minPrice, maxPrice, limit);
+    }
+    
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        return Math.min(size, maxPageSize);
     }
 }
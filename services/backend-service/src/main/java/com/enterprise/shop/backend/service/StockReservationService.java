@@ -0,0 +1,62 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.event.ProductChangedEvent;
+import com.enterprise.shop.backend.model.OrderItem;
+import com.enterprise.shop.backend.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationService {
+    
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * Atomically decrement stock for every order line, or fail without reserving anything.
+     * Each line is a single conditional UPDATE, so concurrent checkouts never read-modify-write
+     * and can never oversell. Must join the caller's transaction so a shortfall rolls back
+     * the lines already reserved. The bulk UPDATE bypasses the entity listeners, so the
+     * change events are published here; listeners only see them after commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(List<OrderItem> items) {
+        aggregateByProduct(items).forEach((productId, quantity) -> {
+            if (productRepository.reserveStock(productId, quantity) == 0) {
+                log.warn("Insufficient stock for product {} (requested {})", productId, quantity);
+                throw new RuntimeException("Insufficient stock for product " + productId);
+            }
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        });
+    }
+    
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(List<OrderItem> items) {
+        aggregateByProduct(items).forEach((productId, quantity) -> {
+            productRepository.releaseStock(productId, quantity);
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        });
+    }
+    
+    /**
+     * Sum quantities per product in ascending id order, so concurrent multi-line
+     * orders always take row locks in the same order and cannot deadlock
+     */
+    private Map<Long, Integer> aggregateByProduct(List<OrderItem> items) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
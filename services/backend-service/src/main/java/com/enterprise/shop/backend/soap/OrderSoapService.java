@@ -4,6 +4,7 @@ import com.enterprise.shop.backend.dto.*;
 import com.enterprise.shop.backend.model.Cart;
 import com.enterprise.shop.backend.model.Order;
 import com.enterprise.shop.backend.service.OrderService;
+import com.enterprise.shop.backend.service.PaymentService;
 import jakarta.jws.WebMethod;
 import jakarta.jws.WebParam;
 import jakarta.jws.WebService;
@@ -19,6 +20,7 @@ import java.util.List;
 public class OrderSoapService {
     
     private final OrderService orderService;
+    private final PaymentService paymentService;
     
     @WebMethod
     public Cart addToCart(
@@ -71,7 +73,17 @@ public class OrderSoapService {
                 .cvv(cvv)
                 .build();
         
-        return orderService.processPayment(request);
+        return paymentService.submitPayment(request);
+    }
+    
+    @WebMethod
+    public PaymentResponse getPayment(@WebParam(name = "paymentId") String paymentId) {
+        return paymentService.getPayment(paymentId);
+    }
+    
+    @WebMethod
+    public Order cancelOrder(@WebParam(name = "orderId") Long orderId) {
+        return orderService.cancelOrder(orderId);
     }
     
     @WebMethod
@@ -79,8 +91,15 @@ public class OrderSoapService {
         return orderService.trackOrder(orderId);
     }
     
+    /**
+     * Newest orders first, one page at a time: pass the smallest order id received as
+     * before to get the next page. Page size is bounded by order.history.max-size.
+     */
     @WebMethod
-    public List<Order> getUserOrders(@WebParam(name = "userId") Long userId) {
-        return orderService.getUserOrders(userId);
+    public List<Order> getUserOrders(
+            @WebParam(name = "userId") Long userId,
+            @WebParam(name = "before") Long before,
+            @WebParam(name = "first") Integer first) {
+        return orderService.getUserOrderHistoryDetails(userId, before, first).getItems();
     }
 }
@@ -0,0 +1,52 @@
+package com.enterprise.shop.backend.idempotency;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedBodyRequestTest {
+    
+    @Test
+    void readListenerGetsTheCachedBodyRightAway() throws Exception {
+        MockHttpServletRequest original = new MockHttpServletRequest("POST", "/api/order/submit");
+        original.setContent("{\"userId\":1}".getBytes(StandardCharsets.UTF_8));
+        CachedBodyRequest request = new CachedBodyRequest(original);
+        
+        ServletInputStream in = request.getInputStream();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                events.add("data");
+                byte[] buffer = new byte[4];
+                int n;
+                while (in.isReady() && !in.isFinished() && (n = in.read(buffer, 0, buffer.length)) > 0) {
+                    read.write(buffer, 0, n);
+                }
+            }
+            
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+            
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+        
+        assertThat(events).containsExactly("data", "done");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"userId\":1}");
+    }
+}
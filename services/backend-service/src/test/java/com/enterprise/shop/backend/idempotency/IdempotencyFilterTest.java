@@ -0,0 +1,86 @@
+package com.enterprise.shop.backend.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTest {
+    
+    private final IdempotencyFilter filter = new IdempotencyFilter(
+            new IdempotencyStore(1000, 3600), new ObjectMapper(), new String[]{"/api/order/submit"});
+    
+    private final AtomicInteger executions = new AtomicInteger();
+    
+    private int nextStatus = HttpServletResponse.SC_OK;
+    
+    // Echoes the body it was given, so the test also sees that the controller can still read it
+    private final FilterChain chain = (request, response) -> {
+        executions.incrementAndGet();
+        ((HttpServletResponse) response).setStatus(nextStatus);
+        response.setContentType("application/json");
+        response.getOutputStream().write(request.getInputStream().readAllBytes());
+    };
+    
+    @Test
+    void replaysSameRequestWithoutExecutingAgain() throws Exception {
+        MockHttpServletResponse first = send("bff", "key-1", "{\"userId\":1}");
+        MockHttpServletResponse second = send("bff", "key-1", "{\"userId\":1}");
+        
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(first.getContentAsString()).isEqualTo("{\"userId\":1}");
+        assertThat(second.getContentAsString()).isEqualTo("{\"userId\":1}");
+        assertThat(second.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+    
+    @Test
+    void refusesSameKeyWithDifferentBody() throws Exception {
+        send("bff", "key-1", "{\"userId\":1}");
+        MockHttpServletResponse reused = send("bff", "key-1", "{\"userId\":2}");
+        
+        assertThat(reused.getStatus()).isEqualTo(422);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+    
+    @Test
+    void scopesKeysToCaller() throws Exception {
+        send("user-bff", "key-1", "{\"userId\":1}");
+        MockHttpServletResponse other = send("order-bff", "key-1", "{\"userId\":1}");
+        
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(other.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+    
+    @Test
+    void retriesFailuresThatAreNotDefinitive() throws Exception {
+        nextStatus = HttpServletResponse.SC_BAD_REQUEST;
+        send("bff", "key-1", "{\"userId\":1}");
+        nextStatus = HttpServletResponse.SC_OK;
+        MockHttpServletResponse retry = send("bff", "key-1", "{\"userId\":1}");
+        
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(retry.getStatus()).isEqualTo(200);
+        
+        nextStatus = HttpServletResponse.SC_CONFLICT;
+        send("bff", "key-2", "{\"userId\":1}");
+        send("bff", "key-2", "{\"userId\":1}");
+        assertThat(executions.get()).isEqualTo(3);
+    }
+    
+    private MockHttpServletResponse send(String caller, String key, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/order/submit");
+        request.addHeader(IdempotencyFilter.CALLER_SERVICE_HEADER, caller);
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
@@ -0,0 +1,133 @@
+package com.enterprise.shop.backend.search;
+
+import com.enterprise.shop.backend.dto.ProductResponse;
+import com.enterprise.shop.backend.model.Product;
+import com.enterprise.shop.backend.repository.ProductRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of ProductSearchIndex on a synthetic 500k-product catalog, next to the
+ * client-side filtering over the full catalog that the index replaces.
+ * <p>
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main ProductSearchIndexBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ProductSearchIndexBenchmark {
+    
+    private static final String[] ADJECTIVES = {
+            "classic", "slim", "wireless", "smart", "running", "leather", "polarized", "programmable",
+            "organic", "premium", "compact", "vintage", "waterproof", "ergonomic", "portable", "modern"};
+    private static final String[] NOUNS = {
+            "shirt", "jeans", "headphones", "watch", "shoes", "backpack", "sunglasses", "coffee",
+            "maker", "jacket", "speaker", "lamp", "blender", "keyboard", "mouse", "bottle", "kettle"};
+    private static final String[] CATEGORIES = {
+            "Clothing", "Electronics", "Footwear", "Accessories", "Home", "Kitchen", "Sports", "Office"};
+    private static final String[] DESCRIPTION_WORDS = {
+            "comfortable", "cotton", "noise", "cancellation", "battery", "health", "monitoring",
+            "cushioning", "laptop", "compartment", "protection", "thermal", "carafe", "stretch",
+            "durable", "lightweight", "everyday", "travel", "stainless", "steel", "bluetooth"};
+    
+    @Param("500000")
+    private int catalogSize;
+    
+    private ProductSearchIndex index;
+    private List<ProductResponse> catalog;
+    
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(catalogSize);
+        for (long id = 1; id <= catalogSize; id++) {
+            String name = pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " x" + random.nextInt(10_000);
+            StringBuilder description = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                description.append(pick(random, DESCRIPTION_WORDS)).append(' ');
+            }
+            products.add(Product.builder()
+                    .id(id)
+                    .name(name)
+                    .description(description.toString())
+                    .category(pick(random, CATEGORIES))
+                    .price(BigDecimal.valueOf(5 + random.nextInt(500)))
+                    .stockQuantity(100)
+                    .active(true)
+                    .build());
+        }
+        catalog = products.stream().map(ProductResponse::from).toList();
+        
+        ProductRepository repository = Mockito.mock(ProductRepository.class);
+        Mockito.when(repository.findByActiveTrue()).thenReturn(products);
+        index = new ProductSearchIndex(repository);
+        ReflectionTestUtils.setField(index, "minPrefixLength", 3);
+        ReflectionTestUtils.setField(index, "maxResults", 100);
+        index.buildIndex();
+    }
+    
+    @Benchmark
+    public List<ProductResponse> exactTerm() {
+        return index.search("headphones", null, null, null, 20);
+    }
+    
+    @Benchmark
+    public List<ProductResponse> prefix() {
+        return index.search("head", null, null, null, 20);
+    }
+    
+    @Benchmark
+    public List<ProductResponse> twoTerms() {
+        return index.search("wireless noise", null, null, null, 20);
+    }
+    
+    @Benchmark
+    public List<ProductResponse> filtered() {
+        return index.search("shoes", "Footwear", BigDecimal.valueOf(50), BigDecimal.valueOf(150), 20);
+    }
+    
+    @Benchmark
+    public List<ProductResponse> selectiveCode() {
+        return index.search("x4242", null, null, null, 20);
+    }
+    
+    /**
+     * "x12" expands to over a hundred model codes
+     */
+    @Benchmark
+    public List<ProductResponse> broadPrefix() {
+        return index.search("x12", null, null, null, 20);
+    }
+    
+    /**
+     * What clients did before the index: pull the whole catalog and filter all of it themselves
+     */
+    @Benchmark
+    public List<ProductResponse> clientSideFilter() {
+        List<ProductResponse> matches = new ArrayList<>();
+        for (ProductResponse product : catalog) {
+            if (product.getName().toLowerCase(Locale.ROOT).contains("headphones")
+                    || product.getDescription().toLowerCase(Locale.ROOT).contains("headphones")) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,107 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.BackendServiceApplication;
+import com.enterprise.shop.backend.model.Order;
+import com.enterprise.shop.backend.model.OrderItem;
+import com.enterprise.shop.backend.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of persisting a submitted order with a 30-line cart, the write that
+ * pooled sequence ids and JDBC batching are meant to speed up. Runs against the
+ * in-memory H2 database, so it measures statement overhead, not network round trips.
+ * <p>
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main OrderPersistenceBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(3)
+public class OrderPersistenceBenchmark {
+    
+    private static final int LINES = 30;
+    
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private Statistics statistics;
+    private long userId;
+    
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BackendServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.properties.hibernate.generate_statistics=true",
+                        "logging.level.com.enterprise.shop=WARN")
+                .run();
+        orderRepository = context.getBean(OrderRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+    
+    /**
+     * Start each iteration from empty tables, so a growing heap and indexes do not slow
+     * down later iterations
+     */
+    @TearDown(Level.Iteration)
+    public void clearOrders() {
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long orders = statistics.getEntityInsertCount() / (LINES + 1);
+        if (orders > 0) {
+            System.out.printf("%nJDBC statements per order: %.2f%n",
+                    (double) statistics.getPrepareStatementCount() / orders);
+        }
+        context.close();
+    }
+    
+    @Benchmark
+    public Order submitOrder() {
+        return transactionTemplate.execute(status -> orderRepository.save(newOrder(++userId)));
+    }
+    
+    private static Order newOrder(long userId) {
+        List<OrderItem> items = new ArrayList<>(LINES);
+        for (int i = 1; i <= LINES; i++) {
+            items.add(OrderItem.builder()
+                    .productId((long) i)
+                    .productName("Product " + i)
+                    .quantity(1)
+                    .unitPrice(new BigDecimal("9.99"))
+                    .totalPrice(new BigDecimal("9.99"))
+                    .build());
+        }
+        return Order.builder()
+                .userId(userId)
+                .items(items)
+                .totalAmount(new BigDecimal("299.70"))
+                .status(Order.OrderStatus.PENDING)
+                .paymentStatus("PENDING")
+                .stockReserved(true)
+                .build();
+    }
+}
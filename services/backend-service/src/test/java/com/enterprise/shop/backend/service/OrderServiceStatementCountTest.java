@@ -0,0 +1,153 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.dto.AddToCartRequest;
+import com.enterprise.shop.backend.dto.OrderSubmitRequest;
+import com.enterprise.shop.backend.dto.PageResponse;
+import com.enterprise.shop.backend.model.Order;
+import com.enterprise.shop.backend.model.OrderItem;
+import com.enterprise.shop.backend.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards against N+1 loading: the order, cart and tracking reads must issue the same
+ * number of SQL statements however many orders or items a user has
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderServiceStatementCountTest {
+    
+    private static final AtomicLong USER_IDS = new AtomicLong(100_000);
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    @Test
+    void userOrdersLoadInOneStatement() {
+        for (int orders : new int[]{1, 12}) {
+            long userId = userWithOrders(orders, 5);
+            
+            long statements = countStatements(() -> {
+                List<Order> loaded = orderService.getUserOrders(userId);
+                // Touch every collection outside any transaction; a lazy one would throw or query
+                assertThat(loaded).hasSize(orders);
+                loaded.forEach(order -> assertThat(order.getItems()).hasSize(5));
+            });
+            assertThat(statements).as("statements for %d orders", orders).isEqualTo(1);
+        }
+    }
+    
+    @Test
+    void orderHistoryDetailsLoadInTwoStatements() {
+        for (int orders : new int[]{3, 15}) {
+            long userId = userWithOrders(orders, 4);
+            
+            long statements = countStatements(() -> {
+                PageResponse<Order> page = orderService.getUserOrderHistoryDetails(userId, null, 20);
+                assertThat(page.getItems()).hasSize(orders);
+                page.getItems().forEach(order -> assertThat(order.getItems()).hasSize(4));
+            });
+            assertThat(statements).as("statements for %d orders", orders).isEqualTo(2);
+        }
+    }
+    
+    @Test
+    void trackingAndCartLoadInOneStatement() {
+        long userId = userWithOrders(1, 8);
+        Long orderId = orderService.getUserOrders(userId).get(0).getId();
+        assertThat(countStatements(() -> orderService.trackOrder(orderId))).isEqualTo(1);
+        
+        long cartUser = USER_IDS.incrementAndGet();
+        for (long productId = 1; productId <= 6; productId++) {
+            orderService.addToCart(cartRequest(cartUser, productId));
+        }
+        assertThat(countStatements(() ->
+                assertThat(orderService.getCart(cartUser).getItems()).hasSize(6))).isEqualTo(1);
+    }
+    
+    @Test
+    void submitOrderGrowsOnlyByOneReservationPerProduct() {
+        long small = submitWithLines(2);
+        long large = submitWithLines(6);
+        
+        // Each distinct product costs its conditional stock UPDATE and, after commit, one reload
+        // by the search index; everything else is batched. Allow up to two pooled-sequence
+        // fetches landing in one run but not the other.
+        assertThat(large - small).isBetween(8L, 10L);
+        assertThat(small).isLessThanOrEqualTo(12);
+    }
+    
+    private long submitWithLines(int lines) {
+        long userId = USER_IDS.incrementAndGet();
+        for (long productId = 1; productId <= lines; productId++) {
+            orderService.addToCart(cartRequest(userId, productId));
+        }
+        return countStatements(() -> orderService.submitOrder(OrderSubmitRequest.builder()
+                .userId(userId)
+                .shippingAddress("1 Test Street")
+                .build()));
+    }
+    
+    private long countStatements(Runnable action) {
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+    
+    private long userWithOrders(int orders, int itemsPerOrder) {
+        long userId = USER_IDS.incrementAndGet();
+        for (int o = 0; o < orders; o++) {
+            List<OrderItem> items = new ArrayList<>();
+            for (int i = 1; i <= itemsPerOrder; i++) {
+                items.add(OrderItem.builder()
+                        .productId((long) i)
+                        .productName("Product " + i)
+                        .quantity(1)
+                        .unitPrice(BigDecimal.TEN)
+                        .totalPrice(BigDecimal.TEN)
+                        .build());
+            }
+            orderRepository.save(Order.builder()
+                    .userId(userId)
+                    .items(items)
+                    .totalAmount(BigDecimal.TEN.multiply(BigDecimal.valueOf(itemsPerOrder)))
+                    .status(Order.OrderStatus.PENDING)
+                    .paymentStatus("PENDING")
+                    .stockReserved(false)
+                    .build());
+        }
+        return userId;
+    }
+    
+    private static AddToCartRequest cartRequest(long userId, long productId) {
+        return AddToCartRequest.builder()
+                .userId(userId)
+                .productId(productId)
+                .quantity(1)
+                .build();
+    }
+}
@@ -0,0 +1,184 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.model.Order;
+import com.enterprise.shop.backend.model.OrderItem;
+import com.enterprise.shop.backend.model.Product;
+import com.enterprise.shop.backend.repository.OrderRepository;
+import com.enterprise.shop.backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class PaymentClaimTest {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private OrderRepository orderRepository;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Test
+    void concurrentPaymentAttemptsClaimOrderOnce() throws Exception {
+        Long productId = createProduct(10);
+        Long orderId = createUnreservedOrder(productId, 3);
+        
+        int threads = 8;
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        orderService.preparePayment(orderId);
+                        claimed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        assertThat(claimed.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(threads - 1);
+        assertThat(stockOf(productId)).isEqualTo(7);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertThat(order.getPaymentStatus()).isEqualTo("PROCESSING");
+        assertThat(order.getStockReserved()).isTrue();
+    }
+    
+    @Test
+    void failedPaymentReleasesStockAndCanBeRetried() {
+        Long productId = createProduct(10);
+        Long orderId = createUnreservedOrder(productId, 3);
+        orderService.preparePayment(orderId);
+        
+        assertThat(orderService.failPayment(orderId)).isTrue();
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertThat(order.getPaymentStatus()).isEqualTo("FAILED");
+        assertThat(order.getStockReserved()).isFalse();
+        assertThat(stockOf(productId)).isEqualTo(10);
+        
+        // Releasing twice must not hand the stock back twice
+        assertThat(orderService.failPayment(orderId)).isFalse();
+        assertThat(stockOf(productId)).isEqualTo(10);
+        
+        orderService.preparePayment(orderId);
+        assertThat(stockOf(productId)).isEqualTo(7);
+    }
+    
+    @Test
+    void sweepReleasesOnlyClaimsOlderThanCutoff() {
+        Long productId = createProduct(10);
+        Long orderId = createUnreservedOrder(productId, 2);
+        orderService.preparePayment(orderId);
+        
+        LocalDateTime anHourAgo = LocalDateTime.now().minusHours(1);
+        assertThat(orderService.findStalledPayments(anHourAgo, 100)).doesNotContain(orderId);
+        assertThat(orderService.releaseStalledPayment(orderId, anHourAgo)).isFalse();
+        assertThat(stockOf(productId)).isEqualTo(8);
+        
+        LocalDateTime future = LocalDateTime.now().plusSeconds(1);
+        assertThat(orderService.findStalledPayments(future, 100)).contains(orderId);
+        assertThat(orderService.releaseStalledPayment(orderId, future)).isTrue();
+        assertThat(stockOf(productId)).isEqualTo(10);
+        
+        // A late gateway answer for the released order is refused rather than recorded
+        assertThatThrownBy(() -> orderService.completePayment(orderId, true))
+                .hasMessageContaining("no longer awaiting");
+    }
+    
+    @Test
+    void abortOnlyUndoesAClaimStillProcessing() {
+        Long productId = createProduct(10);
+        Long orderId = createUnreservedOrder(productId, 1);
+        orderService.preparePayment(orderId);
+        
+        assertThat(orderService.abortPayment(orderId)).isTrue();
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentStatus()).isEqualTo("PENDING");
+        
+        // A result recorded before the abort ran must survive it
+        orderService.preparePayment(orderId);
+        orderService.completePayment(orderId, true);
+        assertThat(orderService.abortPayment(orderId)).isFalse();
+        assertThat(orderRepository.findById(orderId).orElseThrow().getPaymentStatus()).isEqualTo("COMPLETED");
+    }
+    
+    @Test
+    void staleWriteAfterClaimFailsInsteadOfOverwriting() {
+        Long productId = createProduct(10);
+        Long orderId = createUnreservedOrder(productId, 1);
+        Order stale = orderRepository.findById(orderId).orElseThrow();
+        
+        orderService.preparePayment(orderId);
+        stale.setStatus(Order.OrderStatus.CANCELLED);
+        
+        assertThatThrownBy(() -> orderRepository.save(stale))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(orderRepository.findById(orderId).orElseThrow().getStatus())
+                .isEqualTo(Order.OrderStatus.PENDING);
+    }
+    
+    private Long createProduct(int stock) {
+        return productRepository.save(Product.builder()
+                .name("Payment Test Product")
+                .price(BigDecimal.TEN)
+                .category("Test")
+                .stockQuantity(stock)
+                .active(true)
+                .build()).getId();
+    }
+    
+    // An order whose earlier payment failed, so the next attempt has to reserve stock again
+    private Long createUnreservedOrder(Long productId, int quantity) {
+        List<OrderItem> items = new ArrayList<>();
+        items.add(OrderItem.builder()
+                .productId(productId)
+                .productName("Payment Test Product")
+                .quantity(quantity)
+                .unitPrice(BigDecimal.TEN)
+                .totalPrice(BigDecimal.TEN.multiply(BigDecimal.valueOf(quantity)))
+                .build());
+        return orderRepository.save(Order.builder()
+                .userId(200_000L)
+                .items(items)
+                .totalAmount(BigDecimal.TEN.multiply(BigDecimal.valueOf(quantity)))
+                .status(Order.OrderStatus.PENDING)
+                .paymentStatus("FAILED")
+                .stockReserved(false)
+                .build()).getId();
+    }
+    
+    private int stockOf(Long productId) {
+        return productRepository.findById(productId).orElseThrow().getStockQuantity();
+    }
+}
@@ -0,0 +1,80 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.dto.PaymentRequest;
+import com.enterprise.shop.backend.dto.PaymentResponse;
+import com.enterprise.shop.backend.payment.PaymentGateway;
+import com.enterprise.shop.backend.payment.PaymentResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PaymentServiceTest {
+    
+    private final OrderService orderService = mock(OrderService.class);
+    private final PaymentGateway paymentGateway = mock(PaymentGateway.class);
+    private final PaymentService paymentService = new PaymentService(
+            orderService, paymentGateway, inlineExecutor(), 100, 3600, 900, 100);
+    private final PaymentRequest request = PaymentRequest.builder()
+            .orderId(1L)
+            .amount(BigDecimal.TEN)
+            .cardNumber("4111111111111111")
+            .build();
+    
+    @Test
+    void chargeThatCannotBeRecordedIsRefunded() {
+        when(paymentGateway.charge(request)).thenReturn(PaymentResult.approved("tx-1"));
+        when(paymentGateway.refund("tx-1", request)).thenReturn(PaymentResult.approved("rf-1"));
+        doThrow(new RuntimeException("Order 1 is no longer awaiting a payment result"))
+                .when(orderService).completePayment(1L, true);
+        
+        PaymentResponse payment = paymentService.getPayment(paymentService.submitPayment(request).getPaymentId());
+        
+        assertThat(payment.getStatus()).isEqualTo("REFUNDED");
+        assertThat(payment.getTransactionId()).isEqualTo("tx-1");
+        verify(paymentGateway).refund("tx-1", request);
+        verify(orderService).failPayment(1L);
+    }
+    
+    @Test
+    void failedRefundLeavesThePaymentInError() {
+        when(paymentGateway.charge(request)).thenReturn(PaymentResult.approved("tx-2"));
+        when(paymentGateway.refund("tx-2", request)).thenThrow(new RuntimeException("provider down"));
+        doThrow(new RuntimeException("database down")).when(orderService).completePayment(1L, true);
+        
+        PaymentResponse payment = paymentService.getPayment(paymentService.submitPayment(request).getPaymentId());
+        
+        assertThat(payment.getStatus()).isEqualTo("ERROR");
+        assertThat(payment.getTransactionId()).isEqualTo("tx-2");
+    }
+    
+    @Test
+    void declinedChargeIsNeverRefunded() {
+        when(paymentGateway.charge(request)).thenReturn(PaymentResult.declined("Payment processing failed"));
+        doThrow(new RuntimeException("database down")).when(orderService).completePayment(1L, false);
+        
+        PaymentResponse payment = paymentService.getPayment(paymentService.submitPayment(request).getPaymentId());
+        
+        assertThat(payment.getStatus()).isEqualTo("ERROR");
+        verify(paymentGateway, never()).refund(any(), any());
+    }
+    
+    // Runs the payment job on the submitting thread so the outcome is visible right away
+    private static ThreadPoolTaskExecutor inlineExecutor() {
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+        return executor;
+    }
+}
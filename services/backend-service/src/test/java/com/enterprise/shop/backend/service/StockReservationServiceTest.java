@@ -0,0 +1,129 @@
+package com.enterprise.shop.backend.service;
+
+import com.enterprise.shop.backend.model.OrderItem;
+import com.enterprise.shop.backend.model.Product;
+import com.enterprise.shop.backend.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class StockReservationServiceTest {
+    
+    @Autowired
+    private StockReservationService stockReservationService;
+    
+    @Autowired
+    private ProductService productService;
+    
+    @Autowired
+    private ProductRepository productRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        int initialStock = 200;
+        int threads = 16;
+        int attemptsPerThread = 40;
+        Long productId = createProduct(initialStock);
+        
+        AtomicInteger reservedUnits = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int quantity = t % 3 + 1;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        try {
+                            transactionTemplate.executeWithoutResult(status ->
+                                    stockReservationService.reserve(List.of(line(productId, quantity))));
+                            reservedUnits.addAndGet(quantity);
+                        } catch (RuntimeException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        int finalStock = productRepository.findById(productId).orElseThrow().getStockQuantity();
+        assertThat(finalStock).isGreaterThanOrEqualTo(0);
+        assertThat(reservedUnits.get() + finalStock).isEqualTo(initialStock);
+        // Demand (16 threads x 40 attempts x 1-3 units) far exceeds supply, so what is left is less than one order
+        assertThat(finalStock).isLessThan(3);
+        assertThat(rejected.get()).isPositive();
+    }
+    
+    @Test
+    void shortfallOnOneLineReservesNothing() {
+        Long plenty = createProduct(10);
+        Long scarce = createProduct(1);
+        
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                stockReservationService.reserve(List.of(line(plenty, 5), line(scarce, 2)))))
+                .hasMessageContaining("Insufficient stock");
+        
+        assertThat(productRepository.findById(plenty).orElseThrow().getStockQuantity()).isEqualTo(10);
+        assertThat(productRepository.findById(scarce).orElseThrow().getStockQuantity()).isEqualTo(1);
+    }
+    
+    @Test
+    void reserveAndReleaseEvictCachedProduct() {
+        Long productId = createProduct(10);
+        assertThat(productService.getProductById(productId).getStockQuantity()).isEqualTo(10);
+        
+        transactionTemplate.executeWithoutResult(status ->
+                stockReservationService.reserve(List.of(line(productId, 4))));
+        assertThat(productService.getProductById(productId).getStockQuantity()).isEqualTo(6);
+        
+        transactionTemplate.executeWithoutResult(status ->
+                stockReservationService.release(List.of(line(productId, 4))));
+        assertThat(productService.getProductById(productId).getStockQuantity()).isEqualTo(10);
+    }
+    
+    private Long createProduct(int stock) {
+        return productRepository.save(Product.builder()
+                .name("Stress Test Product")
+                .price(new BigDecimal("9.99"))
+                .category("Test")
+                .stockQuantity(stock)
+                .active(true)
+                .build()).getId();
+    }
+    
+    private static OrderItem line(Long productId, int quantity) {
+        return OrderItem.builder()
+                .productId(productId)
+                .productName("Stress Test Product")
+                .quantity(quantity)
+                .unitPrice(new BigDecimal("9.99"))
+                .build();
+    }
+}
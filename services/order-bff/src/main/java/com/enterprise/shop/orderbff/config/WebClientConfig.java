@@ -1,45 +1,50 @@
 package com.enterprise.shop.orderbff.config;
 
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
-
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.TrustManagerFactory;
-import java.io.FileInputStream;
-import java.security.KeyStore;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebClientConfig {
     
+    private final ObjectProvider<MtlsClientFactory> mtlsClientFactoryProvider;
+    
     @Value("${middleware.service.url:http://security-middleware:8080}")
     private String middlewareUrl;
     
     @Value("${mtls.enabled:false}")
     private boolean mtlsEnabled;
     
-    @Value("${mtls.keystore.path:/certs/keystore.p12}")
-    private String keystorePath;
-    
-    @Value("${mtls.keystore.password:changeit}")
-    private String keystorePassword;
+    @Value("${middleware.client.http2.enabled:false}")
+    private boolean http2Enabled;
     
-    @Value("${mtls.truststore.path:/certs/truststore.p12}")
-    private String truststorePath;
+    @Value("${middleware.client.http2.max-concurrent-streams:100}")
+    private int maxConcurrentStreams;
     
-    @Value("${mtls.truststore.password:changeit}")
-    private String truststorePassword;
+    @Value("${middleware.client.http2.max-connections:8}")
+    private int http2MaxConnections;
     
     @Bean
     public WebClient middlewareWebClient() {
         if (mtlsEnabled) {
             return createMtlsWebClient();
         }
+        if (http2Enabled) {
+            return WebClient.builder()
+                    .baseUrl(middlewareUrl)
+                    .defaultHeader("X-Client-Service", "order-bff")
+                    .clientConnector(new ReactorClientHttpConnector(createHttpClient()))
+                    .build();
+        }
         return WebClient.builder()
                 .baseUrl(middlewareUrl)
                 .defaultHeader("X-Client-Service", "order-bff")
@@ -47,36 +52,32 @@ public class WebClientConfig {
     }
     
     private WebClient createMtlsWebClient() {
-        try {
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            keyStore.load(new FileInputStream(keystorePath), keystorePassword.toCharArray());
-            
-            KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(
-                    KeyManagerFactory.getDefaultAlgorithm());
-            keyManagerFactory.init(keyStore, keystorePassword.toCharArray());
-            
-            KeyStore trustStore = KeyStore.getInstance("PKCS12");
-            trustStore.load(new FileInputStream(truststorePath), truststorePassword.toCharArray());
-            
-            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
-                    TrustManagerFactory.getDefaultAlgorithm());
-            trustManagerFactory.init(trustStore);
-            
-            SslContext sslContext = SslContextBuilder.forClient()
-                    .keyManager(keyManagerFactory)
-                    .trustManager(trustManagerFactory)
-                    .build();
-            
-            HttpClient httpClient = HttpClient.create()
-                    .secure(spec -> spec.sslContext(sslContext));
-            
-            return WebClient.builder()
-                    .baseUrl(middlewareUrl)
-                    .defaultHeader("X-Client-Service", "order-bff")
-                    .clientConnector(new ReactorClientHttpConnector(httpClient))
-                    .build();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create mTLS WebClient", e);
+        HttpClient httpClient = mtlsClientFactoryProvider.getObject()
+                .secure(createHttpClient(), "middleware");
+        
+        return WebClient.builder()
+                .baseUrl(middlewareUrl)
+                .defaultHeader("X-Client-Service", "order-bff")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+    
+    /**
+     * With HTTP/2 enabled, requests are multiplexed over a few connections: h2 over ALPN
+     * on mTLS hops, h2c with prior knowledge on plain ones
+     */
+    private HttpClient createHttpClient() {
+        if (!http2Enabled) {
+            return HttpClient.create();
         }
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("middleware")
+                .allocationStrategy(Http2AllocationStrategy.builder()
+                        .minConnections(1)
+                        .maxConnections(http2MaxConnections)
+                        .maxConcurrentStreams(maxConcurrentStreams)
+                        .build())
+                .build();
+        return HttpClient.create(connectionProvider)
+                .protocol(mtlsEnabled ? HttpProtocol.H2 : HttpProtocol.H2C);
     }
 }
@@ -3,16 +3,25 @@ package com.enterprise.shop.orderbff.controller;
 import com.enterprise.shop.orderbff.dto.*;
 import com.enterprise.shop.orderbff.service.OrderBffService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/order")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
 public class OrderController {
     
+    // Backend response headers that the caller needs to act on the answer
+    private static final List<String> PASSED_HEADERS = List.of(
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER,
+        OrderBffService.IDEMPOTENT_REPLAYED_HEADER
+    );
+    
     private final OrderBffService orderBffService;
     
     @PostMapping("/add-to-cart")
@@ -32,16 +41,28 @@ public class OrderController {
     }
     
     @PostMapping("/submit")
-    public Mono<ResponseEntity<String>> submitOrder(@RequestBody OrderSubmitRequest request) {
-        return orderBffService.submitOrder(request)
-                .map(ResponseEntity::ok)
+    public Mono<ResponseEntity<String>> submitOrder(
+            @RequestBody OrderSubmitRequest request,
+            @RequestHeader(value = OrderBffService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return orderBffService.submitOrder(request, idempotencyKey)
+                .map(OrderController::passThrough)
                 .onErrorResume(error -> Mono.just(
                         ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
     }
     
     @PostMapping("/payment")
-    public Mono<ResponseEntity<String>> processPayment(@RequestBody PaymentRequest request) {
-        return orderBffService.processPayment(request)
+    public Mono<ResponseEntity<String>> processPayment(
+            @RequestBody PaymentRequest request,
+            @RequestHeader(value = OrderBffService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return orderBffService.processPayment(request, idempotencyKey)
+                .map(OrderController::passThrough)
+                .onErrorResume(error -> Mono.just(
+                        ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
+    }
+    
+    @GetMapping("/payment/{paymentId}")
+    public Mono<ResponseEntity<String>> getPayment(@PathVariable String paymentId) {
+        return orderBffService.getPayment(paymentId)
                 .map(ResponseEntity::ok)
                 .onErrorResume(error -> Mono.just(
                         ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
@@ -62,4 +83,30 @@ public class OrderController {
                 .onErrorResume(error -> Mono.just(
                         ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
     }
+    
+    @GetMapping("/user/{userId}/history")
+    public Mono<ResponseEntity<String>> getUserOrderHistory(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "false") boolean details) {
+        return orderBffService.getUserOrderHistory(userId, before, size, details)
+                .map(ResponseEntity::ok)
+                .onErrorResume(error -> Mono.just(
+                        ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
+    }
+    
+    /**
+     * Answer with the backend's status, its relevant headers and its body
+     */
+    private static ResponseEntity<String> passThrough(ResponseEntity<String> backend) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : PASSED_HEADERS) {
+            List<String> values = backend.getHeaders().get(name);
+            if (values != null) {
+                headers.put(name, values);
+            }
+        }
+        return ResponseEntity.status(backend.getStatusCode()).headers(headers).body(backend.getBody());
+    }
 }
@@ -15,8 +15,21 @@ public class ProductController {
     private final OrderBffService orderBffService;
     
     @GetMapping
-    public Mono<ResponseEntity<String>> getProducts() {
-        return orderBffService.getProducts()
+    public Mono<ResponseEntity<String>> getProducts(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size) {
+        return orderBffService.getProducts(after, size)
+                .map(ResponseEntity::ok)
+                .onErrorResume(error -> Mono.just(
+                        ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
+    }
+    
+    @GetMapping("/category/{category}")
+    public Mono<ResponseEntity<String>> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer size) {
+        return orderBffService.getProductsByCategory(category, after, size)
                 .map(ResponseEntity::ok)
                 .onErrorResume(error -> Mono.just(
                         ResponseEntity.badRequest().body("{\"error\": \"" + error.getMessage() + "\"}")));
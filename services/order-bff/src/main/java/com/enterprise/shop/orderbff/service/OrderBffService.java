@@ -3,17 +3,25 @@ package com.enterprise.shop.orderbff.service;
 import com.enterprise.shop.orderbff.dto.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderBffService {
     
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    
     private final WebClient middlewareWebClient;
+    private final SingleFlight singleFlight;
     
     public Mono<String> addToCart(AddToCartRequest request) {
         log.info("BFF: Adding product {} to cart for user {}", request.getProductId(), request.getUserId());
@@ -30,7 +38,7 @@ public class OrderBffService {
     }
     
     public Mono<String> getCart(Long userId) {
-        log.info("BFF: Getting cart for user {}", userId);
+        log.debug("BFF: Getting cart for user {}", userId);
         
         return middlewareWebClient
                 .get()
@@ -39,46 +47,70 @@ public class OrderBffService {
                 .bodyToMono(String.class);
     }
     
-    public Mono<String> submitOrder(OrderSubmitRequest request) {
+    /**
+     * The backend's status and headers come back with the body: a replayed result, a 409
+     * for a request still in progress and a 503 with Retry-After all matter to the caller
+     */
+    public Mono<ResponseEntity<String>> submitOrder(OrderSubmitRequest request, String idempotencyKey) {
         log.info("BFF: Submitting order for user {}", request.getUserId());
         
         return middlewareWebClient
                 .post()
                 .uri("/api/order/submit")
+                .headers(h -> applyIdempotencyKey(h, idempotencyKey))
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(request)
                 .retrieve()
-                .bodyToMono(String.class)
-                .doOnSuccess(response -> log.info("Order submitted successfully"))
+                .onStatus(status -> true, response -> Mono.empty())
+                .toEntity(String.class)
+                .doOnSuccess(response -> log.info("Order submission answered {}", response.getStatusCode()))
                 .doOnError(error -> log.error("Order submission failed: {}", error.getMessage()));
     }
     
-    public Mono<String> processPayment(PaymentRequest request) {
+    /**
+     * As submitOrder, the backend's status and headers are kept
+     */
+    public Mono<ResponseEntity<String>> processPayment(PaymentRequest request, String idempotencyKey) {
         log.info("BFF: Processing payment for order {}", request.getOrderId());
         
         return middlewareWebClient
                 .post()
                 .uri("/api/order/payment")
+                .headers(h -> applyIdempotencyKey(h, idempotencyKey))
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(request)
                 .retrieve()
-                .bodyToMono(String.class)
-                .doOnSuccess(response -> log.info("Payment processed successfully"))
+                .onStatus(status -> true, response -> Mono.empty())
+                .toEntity(String.class)
+                .doOnSuccess(response -> log.info("Payment for order {} answered {}",
+                        request.getOrderId(), response.getStatusCode()))
                 .doOnError(error -> log.error("Payment failed: {}", error.getMessage()));
     }
     
+    public Mono<String> getPayment(String paymentId) {
+        log.debug("BFF: Getting payment {}", paymentId);
+        
+        return singleFlight.coalesced(SingleFlight.SERVICE_SCOPE, "/api/order/payment/" + paymentId,
+                () -> middlewareWebClient
+                        .get()
+                        .uri("/api/order/payment/{paymentId}", paymentId)
+                        .retrieve()
+                        .bodyToMono(String.class));
+    }
+    
     public Mono<String> trackOrder(Long orderId) {
-        log.info("BFF: Tracking order {}", orderId);
+        log.debug("BFF: Tracking order {}", orderId);
         
-        return middlewareWebClient
-                .get()
-                .uri("/api/order/track/{orderId}", orderId)
-                .retrieve()
-                .bodyToMono(String.class);
+        return singleFlight.coalesced(SingleFlight.SERVICE_SCOPE, "/api/order/track/" + orderId,
+                () -> middlewareWebClient
+                        .get()
+                        .uri("/api/order/track/{orderId}", orderId)
+                        .retrieve()
+                        .bodyToMono(String.class));
     }
     
     public Mono<String> getUserOrders(Long userId) {
-        log.info("BFF: Getting orders for user {}", userId);
+        log.debug("BFF: Getting orders for user {}", userId);
         
         return middlewareWebClient
                 .get()
@@ -87,23 +119,69 @@ public class OrderBffService {
                 .bodyToMono(String.class);
     }
     
-    public Mono<String> getProducts() {
-        log.info("BFF: Getting products");
+    public Mono<String> getUserOrderHistory(Long userId, Long before, Integer size, boolean details) {
+        log.debug("BFF: Getting order history for user {} before {} (size {})", userId, before, size);
         
         return middlewareWebClient
                 .get()
-                .uri("/api/product")
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/order/user/{userId}/history")
+                        .queryParamIfPresent("before", Optional.ofNullable(before))
+                        .queryParamIfPresent("size", Optional.ofNullable(size))
+                        .queryParam("details", details)
+                        .build(userId))
                 .retrieve()
                 .bodyToMono(String.class);
     }
     
+    public Mono<String> getProducts(Long after, Integer size) {
+        log.debug("BFF: Getting products after {} (size {})", after, size);
+        
+        return singleFlight.shared(SingleFlight.SERVICE_SCOPE, "/api/product?after=" + after + "&size=" + size,
+                () -> middlewareWebClient
+                        .get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/api/product")
+                                .queryParamIfPresent("after", Optional.ofNullable(after))
+                                .queryParamIfPresent("size", Optional.ofNullable(size))
+                                .build())
+                        .retrieve()
+                        .bodyToMono(String.class));
+    }
+    
+    public Mono<String> getProductsByCategory(String category, Long after, Integer size) {
+        log.debug("BFF: Getting products in category {} after {} (size {})", category, after, size);
+        
+        String uri = "/api/product/category/" + category + "?after=" + after + "&size=" + size;
+        return singleFlight.shared(SingleFlight.SERVICE_SCOPE, uri,
+                () -> middlewareWebClient
+                        .get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/api/product/category/{category}")
+                                .queryParamIfPresent("after", Optional.ofNullable(after))
+                                .queryParamIfPresent("size", Optional.ofNullable(size))
+                                .build(category))
+                        .retrieve()
+                        .bodyToMono(String.class));
+    }
+    
     public Mono<String> getProduct(Long productId) {
-        log.info("BFF: Getting product {}", productId);
+        log.debug("BFF: Getting product {}", productId);
         
-        return middlewareWebClient
-                .get()
-                .uri("/api/product/{id}", productId)
-                .retrieve()
-                .bodyToMono(String.class);
+        return singleFlight.shared(SingleFlight.SERVICE_SCOPE, "/api/product/" + productId,
+                () -> middlewareWebClient
+                        .get()
+                        .uri("/api/product/{id}", productId)
+                        .retrieve()
+                        .bodyToMono(String.class));
+    }
+    
+    /**
+     * Pass the caller's Idempotency-Key through, so the backend can deduplicate retries
+     */
+    private void applyIdempotencyKey(HttpHeaders headers, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
     }
 }
@@ -0,0 +1,67 @@
+package com.enterprise.shop.middleware.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admission control settings (admission.*). Rate limits apply per caller CN; trusted
+ * services can be given their own limit under admission.rate.callers, everyone else
+ * shares the untrusted bucket.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+    
+    private boolean enabled = true;
+    
+    private Rate rate = new Rate();
+    
+    private Concurrency concurrency = new Concurrency();
+    
+    @Data
+    public static class Rate {
+        /** Limit for trusted services without an entry in callers */
+        private Limit defaults = new Limit(200, 400);
+        
+        /** Shared by every CN that is not a trusted service */
+        private Limit untrusted = new Limit(20, 40);
+        
+        /** Per trusted service overrides, keyed by CN */
+        private Map<String, Limit> callers = new HashMap<>();
+    }
+    
+    @Data
+    public static class Limit {
+        private double permitsPerSecond;
+        private int burst;
+        
+        public Limit() {
+        }
+        
+        public Limit(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+    
+    @Data
+    public static class Concurrency {
+        private int initialLimit = 100;
+        private int minLimit = 10;
+        private int maxLimit = 1000;
+        
+        /** A request slower than this counts as a sign of backend overload */
+        private long latencyThresholdMs = 500;
+        
+        /** Multiplier applied to the limit on overload */
+        private double backoffRatio = 0.9;
+        
+        /** Retry-After sent with 503 when the concurrency limit is reached */
+        private int retryAfterSeconds = 1;
+    }
+}
@@ -0,0 +1,160 @@
+package com.enterprise.shop.middleware.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a request may be forwarded to the backend. Each trusted caller CN has
+ * its own token bucket and all untrusted CNs share one, so a misbehaving BFF is throttled
+ * without affecting the others. Admitted requests then need a slot under a global
+ * concurrency limit that shrinks when backend latency rises, shedding load before the
+ * backend saturates.
+ */
+@Service
+@Slf4j
+public class AdmissionService {
+    
+    public enum Status { ADMITTED, RATE_LIMITED, OVERLOADED }
+    
+    public record Admission(Status status, long retryAfterSeconds) {
+        
+        static final Admission ADMITTED = new Admission(Status.ADMITTED, 0);
+        
+        public boolean admitted() {
+            return status == Status.ADMITTED;
+        }
+    }
+    
+    private static final String UNTRUSTED = "untrusted";
+    
+    private final AdmissionProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final AimdConcurrencyLimiter concurrencyLimiter;
+    private final Admission overloaded;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+    
+    public AdmissionService(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        
+        AdmissionProperties.Concurrency concurrency = properties.getConcurrency();
+        this.concurrencyLimiter = new AimdConcurrencyLimiter(
+                concurrency.getInitialLimit(), concurrency.getMinLimit(), concurrency.getMaxLimit(),
+                TimeUnit.MILLISECONDS.toNanos(concurrency.getLatencyThresholdMs()), concurrency.getBackoffRatio());
+        this.overloaded = new Admission(Status.OVERLOADED, concurrency.getRetryAfterSeconds());
+        
+        Gauge.builder("gateway.admission.concurrency.limit", concurrencyLimiter, AimdConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit on requests in flight to the backend")
+                .register(meterRegistry);
+        Gauge.builder("gateway.admission.concurrency.in-flight", concurrencyLimiter,
+                        AimdConcurrencyLimiter::getInFlight)
+                .description("Requests currently in flight to the backend")
+                .register(meterRegistry);
+        
+        log.info("Admission control {} (initial concurrency limit {}, default rate {}/s)",
+                properties.isEnabled() ? "enabled" : "disabled", concurrency.getInitialLimit(),
+                properties.getRate().getDefaults().getPermitsPerSecond());
+    }
+    
+    /**
+     * Try to admit a request. An admitted request holds a concurrency slot that must be
+     * given back with {@link #release} or {@link #releaseIgnored}.
+     */
+    public Admission tryAdmit(String callerService, boolean trusted) {
+        if (!properties.isEnabled()) {
+            return Admission.ADMITTED;
+        }
+        String bucketKey = trusted ? callerService : UNTRUSTED;
+        
+        TokenBucket bucket = bucketFor(bucketKey);
+        long waitNanos = bucket.tryAcquire();
+        if (waitNanos > 0) {
+            rejected(bucketKey, Status.RATE_LIMITED);
+            return new Admission(Status.RATE_LIMITED, Math.max(1, (long) Math.ceil(waitNanos / 1e9)));
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            // Shed for the backend's sake, not the caller's, so the request must not cost it rate
+            bucket.refund();
+            rejected(bucketKey, Status.OVERLOADED);
+            return overloaded;
+        }
+        return Admission.ADMITTED;
+    }
+    
+    /**
+     * Give back a concurrency slot, feeding the backend's latency and outcome into the limit
+     */
+    public void release(long latencyNanos, boolean failed) {
+        if (properties.isEnabled()) {
+            concurrencyLimiter.release(latencyNanos, failed);
+        }
+    }
+    
+    /**
+     * Give back a concurrency slot without judging the backend, e.g. when the client cancelled
+     */
+    public void releaseIgnored() {
+        if (properties.isEnabled()) {
+            concurrencyLimiter.releaseIgnored();
+        }
+    }
+    
+    /**
+     * Current limits for /admin/stats
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("concurrencyLimit", concurrencyLimiter.getLimit());
+        stats.put("inFlight", concurrencyLimiter.getInFlight());
+        Map<String, Double> tokens = new LinkedHashMap<>();
+        buckets.forEach((caller, bucket) -> tokens.put(caller, Math.floor(bucket.availableTokens())));
+        stats.put("availableTokens", tokens);
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejectedCounters.forEach((key, counter) -> rejected.put(key, (long) counter.count()));
+        stats.put("rejected", rejected);
+        return stats;
+    }
+    
+    private TokenBucket bucketFor(String bucketKey) {
+        TokenBucket bucket = buckets.get(bucketKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        return buckets.computeIfAbsent(bucketKey, key -> {
+            AdmissionProperties.Rate rate = properties.getRate();
+            AdmissionProperties.Limit limit = UNTRUSTED.equals(key)
+                    ? rate.getUntrusted()
+                    : rate.getCallers().getOrDefault(key, rate.getDefaults());
+            TokenBucket created = new TokenBucket(limit.getPermitsPerSecond(), limit.getBurst());
+            
+            Gauge.builder("gateway.admission.rate.limit", limit, AdmissionProperties.Limit::getPermitsPerSecond)
+                    .description("Configured permits per second for the caller")
+                    .tag("caller", key)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.admission.rate.tokens", created, TokenBucket::availableTokens)
+                    .description("Tokens currently available to the caller")
+                    .tag("caller", key)
+                    .register(meterRegistry);
+            return created;
+        });
+    }
+    
+    private void rejected(String bucketKey, Status reason) {
+        rejectedCounters.computeIfAbsent(bucketKey + ":" + reason, key -> Counter.builder("gateway.admission.rejected")
+                .description("Requests shed by admission control")
+                .tag("caller", bucketKey)
+                .tag("reason", reason.name())
+                .register(meterRegistry))
+                .increment();
+    }
+}
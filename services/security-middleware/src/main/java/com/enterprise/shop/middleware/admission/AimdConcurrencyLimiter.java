@@ -0,0 +1,71 @@
+package com.enterprise.shop.middleware.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to backend latency: additive increase while requests
+ * complete quickly and the limit is actually being used, multiplicative decrease when
+ * a request is slow or fails. Requests beyond the current limit are rejected.
+ */
+class AimdConcurrencyLimiter {
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    
+    AimdConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                           long latencyThresholdNanos, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+    
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    /**
+     * Release a permit taken by tryAcquire, feeding the outcome into the limit
+     */
+    void release(long latencyNanos, boolean failed) {
+        int concurrent = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (failed || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (concurrent * 2 >= limit) {
+                // Roughly +1 per limit's worth of completions, and only while at least half the
+                // limit is in use; otherwise a quiet period would ratchet the limit up to max
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+    
+    /**
+     * Release without adjusting the limit, e.g. when the client went away
+     */
+    void releaseIgnored() {
+        inFlight.decrementAndGet();
+    }
+    
+    int getLimit() {
+        return (int) limit;
+    }
+    
+    int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,51 @@
+package com.enterprise.shop.middleware.admission;
+
+/**
+ * Token bucket refilled continuously at permitsPerSecond, holding at most burst tokens
+ */
+class TokenBucket {
+    
+    private final double permitsPerNano;
+    private final double capacity;
+    
+    private double tokens;
+    private long lastRefillNanos;
+    
+    TokenBucket(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+    
+    /**
+     * Take one token. Returns 0 when granted, otherwise the nanoseconds until one is available.
+     */
+    synchronized long tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return permitsPerNano > 0 ? (long) Math.ceil((1 - tokens) / permitsPerNano) : Long.MAX_VALUE;
+    }
+    
+    /**
+     * Give back a token taken by a request that was then turned away for another reason
+     */
+    synchronized void refund() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+    
+    synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+    
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+}
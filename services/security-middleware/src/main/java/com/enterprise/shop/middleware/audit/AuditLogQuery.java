@@ -0,0 +1,27 @@
+package com.enterprise.shop.middleware.audit;
+
+import com.enterprise.shop.middleware.model.RequestLog;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter for audit log reads; null fields match everything. The endpoint matches as a prefix,
+ * from is inclusive and to is exclusive.
+ */
+public record AuditLogQuery(String callerService, String endpoint,
+                            LocalDateTime from, LocalDateTime to, int limit) {
+    
+    public boolean matches(RequestLog requestLog) {
+        if (callerService != null && !callerService.equals(requestLog.getCallerService())) {
+            return false;
+        }
+        if (endpoint != null && (requestLog.getEndpoint() == null || !requestLog.getEndpoint().startsWith(endpoint))) {
+            return false;
+        }
+        LocalDateTime timestamp = requestLog.getTimestamp();
+        if (from != null && (timestamp == null || timestamp.isBefore(from))) {
+            return false;
+        }
+        return to == null || (timestamp != null && timestamp.isBefore(to));
+    }
+}
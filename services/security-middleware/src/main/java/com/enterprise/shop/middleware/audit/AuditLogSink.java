@@ -0,0 +1,331 @@
+package com.enterprise.shop.middleware.audit;
+
+import com.enterprise.shop.middleware.model.RequestLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable audit trail. Request threads only enqueue; a single writer thread drains the
+ * queue in batches and appends binary records to fixed-size memory-mapped segment files,
+ * rotating to a new segment when one fills and keeping the newest max-segments files.
+ * A record is committed by writing its length last, so a crash mid-write leaves the
+ * segment readable up to the previous record. Opt-in with audit.durable.enabled=true,
+ * which also requires audit.durable.directory on persistent storage.
+ */
+@Component
+@ConditionalOnProperty(name = "audit.durable.enabled", havingValue = "true")
+@Slf4j
+public class AuditLogSink {
+    
+    public enum OverflowPolicy {
+        /** Drop the record immediately when the queue is full */
+        DROP,
+        /** Wait up to block-timeout-ms for space, then drop */
+        BLOCK
+    }
+    
+    private static final int SEGMENT_MAGIC = 0x41554431; // "AUD1"
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMs;
+    
+    private final BlockingQueue<RequestLog> queue;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Thread writer;
+    private volatile boolean running = true;
+    
+    // Owned by the writer thread, except activeIndex/committedPosition which readers use as bounds
+    private final ByteBuffer scratch = ByteBuffer.allocate(AuditRecordCodec.MAX_RECORD_BYTES);
+    private MappedByteBuffer activeSegment;
+    private volatile long activeIndex;
+    private volatile int committedPosition;
+    
+    public AuditLogSink(
+            @Value("${audit.durable.directory:}") String directory,
+            @Value("${audit.durable.segment-size-bytes:16777216}") int segmentSize,
+            @Value("${audit.durable.max-segments:16}") int maxSegments,
+            @Value("${audit.durable.queue-capacity:65536}") int queueCapacity,
+            @Value("${audit.durable.batch-size:512}") int batchSize,
+            @Value("${audit.durable.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${audit.durable.overflow-policy:DROP}") OverflowPolicy overflowPolicy,
+            @Value("${audit.durable.block-timeout-ms:5}") long blockTimeoutMs,
+            MeterRegistry meterRegistry) {
+        // A durable log in a scratch directory is lost with the container, so never pick one silently
+        if (directory == null || directory.isBlank()) {
+            throw new IllegalStateException(
+                    "audit.durable.enabled=true requires audit.durable.directory (AUDIT_LOG_DIR) to be set");
+        }
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMs = blockTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        
+        this.writtenCounter = Counter.builder("audit.log.written")
+                .description("Audit records appended to segment files")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("audit.log.dropped")
+                .description("Audit records dropped because the sink queue was full")
+                .register(meterRegistry);
+        Gauge.builder("audit.log.queued", queue, BlockingQueue::size)
+                .description("Audit records waiting to be written")
+                .register(meterRegistry);
+        
+        try {
+            Files.createDirectories(this.directory);
+            // Never append to a segment left by a previous process; start a fresh one after it
+            openSegment(listSegments().stream().mapToLong(AuditLogSink::segmentIndex).max().orElse(-1) + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open audit log in " + directory, e);
+        }
+        
+        this.writer = new Thread(this::runWriter, "audit-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        log.info("Durable audit log in {} ({} byte segments, keeping {}, overflow policy {})",
+                this.directory, segmentSize, this.maxSegments, overflowPolicy);
+    }
+    
+    /**
+     * Hand a record to the writer thread. Never blocks longer than block-timeout-ms.
+     */
+    public void append(RequestLog requestLog) {
+        boolean accepted;
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = queue.offer(requestLog, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(requestLog);
+        }
+        if (!accepted) {
+            droppedCounter.increment();
+        }
+    }
+    
+    /**
+     * Scan segments from newest to oldest and return up to limit matching records, oldest first
+     */
+    public List<RequestLog> query(AuditLogQuery query) {
+        Deque<RequestLog> results = new ArrayDeque<>();
+        long fromMillis = query.from() != null
+                ? query.from().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : Long.MIN_VALUE;
+        
+        List<Path> segments = listSegments();
+        for (int i = segments.size() - 1; i >= 0 && results.size() < query.limit(); i--) {
+            Path segment = segments.get(i);
+            long index = segmentIndex(segment);
+            // Readers never look past what the writer has committed in the active segment
+            int bound = index == activeIndex ? committedPosition : Integer.MAX_VALUE;
+            
+            List<RequestLog> matches = new ArrayList<>();
+            long newestMillis;
+            try {
+                newestMillis = scanSegment(segment, bound, query, matches);
+            } catch (IOException e) {
+                // Retention may delete a segment between listing and reading it
+                log.debug("Skipping unreadable audit segment {}: {}", segment, e.getMessage());
+                continue;
+            }
+            for (int j = matches.size() - 1; j >= 0 && results.size() < query.limit(); j--) {
+                results.addFirst(matches.get(j));
+            }
+            // Older segments only hold older records
+            if (newestMillis != Long.MIN_VALUE && newestMillis < fromMillis) {
+                break;
+            }
+        }
+        return new ArrayList<>(results);
+    }
+    
+    public long getDropped() {
+        return (long) droppedCounter.count();
+    }
+    
+    public long getWritten() {
+        return (long) writtenCounter.count();
+    }
+    
+    public int getQueued() {
+        return queue.size();
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // The writer notices within one poll interval and drains the queue before exiting
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+    
+    private void runWriter() {
+        List<RequestLog> batch = new ArrayList<>(batchSize);
+        long lastForce = System.currentTimeMillis();
+        boolean dirty = false;
+        
+        while (running || !queue.isEmpty()) {
+            try {
+                RequestLog first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    for (RequestLog requestLog : batch) {
+                        write(requestLog);
+                    }
+                    writtenCounter.increment(batch.size());
+                    batch.clear();
+                    dirty = true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Failed to write audit records, dropping batch of {}: {}", batch.size(), e.getMessage());
+                droppedCounter.increment(batch.size());
+                batch.clear();
+            }
+            
+            if (dirty && System.currentTimeMillis() - lastForce >= flushIntervalMs) {
+                activeSegment.force();
+                lastForce = System.currentTimeMillis();
+                dirty = false;
+            }
+        }
+        activeSegment.force();
+    }
+    
+    private void write(RequestLog requestLog) throws IOException {
+        scratch.clear();
+        AuditRecordCodec.encode(requestLog, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+        
+        // Keep room for this record plus a zero length that marks the end of the segment
+        if (activeSegment.remaining() < 4 + length + 4) {
+            activeSegment.force();
+            openSegment(activeIndex + 1);
+        }
+        
+        int start = activeSegment.position();
+        activeSegment.position(start + 4);
+        activeSegment.put(scratch);
+        activeSegment.putInt(start, length);
+        committedPosition = activeSegment.position();
+    }
+    
+    private void openSegment(long index) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            segment.putInt(SEGMENT_MAGIC);
+            segment.putInt(1);
+            activeSegment = segment;
+            committedPosition = segment.position();
+            activeIndex = index;
+        }
+        enforceRetention();
+    }
+    
+    private void enforceRetention() {
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            try {
+                Files.deleteIfExists(segments.get(i));
+            } catch (IOException e) {
+                log.warn("Failed to delete old audit segment {}: {}", segments.get(i), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Decode matching records in file order; returns the newest timestamp seen
+     */
+    private long scanSegment(Path segment, int bound, AuditLogQuery query, List<RequestLog> matches)
+            throws IOException {
+        long newestMillis = Long.MIN_VALUE;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < SEGMENT_HEADER_BYTES || buffer.getInt(0) != SEGMENT_MAGIC) {
+                return newestMillis;
+            }
+            int limit = Math.min(bound, buffer.limit());
+            int position = SEGMENT_HEADER_BYTES;
+            
+            while (position + 4 <= limit) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + 4 + length > limit) {
+                    break;
+                }
+                int recordStart = position + 4;
+                newestMillis = Math.max(newestMillis, AuditRecordCodec.peekEpochMillis(buffer, recordStart));
+                
+                RequestLog requestLog = AuditRecordCodec.decode(buffer.slice(recordStart, length));
+                if (query.matches(requestLog)) {
+                    matches.add(requestLog);
+                }
+                position = recordStart + length;
+            }
+        }
+        return newestMillis;
+    }
+    
+    private List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(AuditLogSink::segmentIndex))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list audit segments in " + directory, e);
+        }
+    }
+    
+    private static long segmentIndex(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.enterprise.shop.middleware.audit;
+
+import com.enterprise.shop.middleware.model.RequestLog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Binary layout of one audit record (the 4-byte length prefix is owned by the segment):
+ * epoch millis, duration, then requestId, callerService, endpoint, method, protocolType,
+ * result, clientCertCN and errorMessage as length-prefixed UTF-8 (-1 for null)
+ */
+final class AuditRecordCodec {
+    
+    static final int MAX_STRING_BYTES = 4096;
+    static final int MAX_RECORD_BYTES = 16 + 8 * (2 + MAX_STRING_BYTES);
+    
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    
+    private AuditRecordCodec() {
+    }
+    
+    static void encode(RequestLog requestLog, ByteBuffer out) {
+        LocalDateTime timestamp = requestLog.getTimestamp();
+        out.putLong(timestamp != null ? timestamp.atZone(ZONE).toInstant().toEpochMilli() : 0L);
+        out.putLong(requestLog.getDurationMs());
+        putString(out, requestLog.getRequestId());
+        putString(out, requestLog.getCallerService());
+        putString(out, requestLog.getEndpoint());
+        putString(out, requestLog.getMethod());
+        putString(out, requestLog.getProtocolType());
+        putString(out, requestLog.getResult());
+        putString(out, requestLog.getClientCertCN());
+        putString(out, requestLog.getErrorMessage());
+    }
+    
+    static RequestLog decode(ByteBuffer in) {
+        long epochMillis = in.getLong();
+        long durationMs = in.getLong();
+        return RequestLog.builder()
+                .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE))
+                .durationMs(durationMs)
+                .requestId(getString(in))
+                .callerService(getString(in))
+                .endpoint(getString(in))
+                .method(getString(in))
+                .protocolType(getString(in))
+                .result(getString(in))
+                .clientCertCN(getString(in))
+                .errorMessage(getString(in))
+                .build();
+    }
+    
+    /**
+     * Read only the timestamp of an encoded record without decoding the rest
+     */
+    static long peekEpochMillis(ByteBuffer in, int recordStart) {
+        return in.getLong(recordStart);
+    }
+    
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+    
+    private static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.enterprise.shop.middleware.audit;
+
+import com.enterprise.shop.middleware.model.RequestLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, lock-free ring of the most recent request logs. Writers claim a
+ * sequence number and publish an immutable slot tagged with it; readers only return
+ * slots whose tag matches the sequence they expect, so a snapshot never mixes in an
+ * entry that was overwritten or is still being written. Once full, the oldest
+ * entries are overwritten.
+ */
+public class RequestLogRingBuffer {
+    
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicReferenceArray<Slot> slots;
+    
+    public RequestLogRingBuffer(int requestedCapacity) {
+        if (requestedCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        // Round up to a power of two so the slot index is a mask, not a division
+        this.capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+    
+    public void add(RequestLog requestLog) {
+        long sequence = cursor.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Slot slot = new Slot(sequence, requestLog);
+        
+        // A writer that stalled for a whole lap must not overwrite a newer entry
+        Slot current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > sequence) {
+                return;
+            }
+        } while (!slots.compareAndSet(index, current, slot));
+    }
+    
+    /**
+     * Up to limit of the most recent entries, oldest first
+     */
+    public List<RequestLog> recent(int limit) {
+        long end = cursor.get();
+        long start = Math.max(0, end - Math.min(limit, capacity));
+        if (start >= end) {
+            return List.of();
+        }
+        
+        List<RequestLog> result = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            Slot slot = slots.get((int) (sequence & mask));
+            // Skip slots already lapped by a newer write or not yet published
+            if (slot != null && slot.sequence == sequence) {
+                result.add(slot.requestLog);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+    
+    public int capacity() {
+        return capacity;
+    }
+    
+    /**
+     * Total number of entries ever written, including those since overwritten
+     */
+    public long written() {
+        return cursor.get();
+    }
+    
+    private record Slot(long sequence, RequestLog requestLog) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.enterprise.shop.middleware.cache;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A stored backend response. Fresh until freshUntilNanos; after that it may only be
+ * served once the backend confirms the ETag is still current.
+ */
+record CachedResponse(int status, HttpHeaders headers, byte[] body, String etag, long freshUntilNanos) {
+    
+    boolean isFresh(long nowNanos) {
+        return nowNanos - freshUntilNanos < 0;
+    }
+    
+    CachedResponse refreshed(long freshUntilNanos) {
+        return new CachedResponse(status, headers, body, etag, freshUntilNanos);
+    }
+    
+    int weight() {
+        int weight = body.length + 64;
+        for (var header : headers.entrySet()) {
+            weight += header.getKey().length();
+            for (String value : header.getValue()) {
+                weight += value.length();
+            }
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,296 @@
+package com.enterprise.shop.middleware.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Shared cache for idempotent GETs passing through the gateway. Bodies are kept as compact
+ * byte arrays in a Caffeine cache bounded by total bytes. A response is stored only when
+ * the backend allows it (no no-store, no private, no Set-Cookie, a Vary limited to the
+ * configured headers) and stays fresh for the shorter of the route TTL and the backend's
+ * s-maxage, or max-age when there is no s-maxage. Stale entries
+ * with an ETag are revalidated with If-None-Match, so a 304 refreshes them without
+ * transferring the body again. Concurrent misses for the same key share one backend call.
+ */
+@Component
+@ConditionalOnProperty(name = "cache.enabled", havingValue = "true")
+@Slf4j
+public class ResponseCache {
+    
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+    
+    private static final byte[] EMPTY = new byte[0];
+    
+    // Stripped before going to the backend; the cache needs full responses to store
+    private static final Set<String> CONDITIONAL_HEADERS = Set.of(
+        "if-none-match", "if-modified-since", "if-match", "if-unmodified-since", "if-range"
+    );
+    
+    private enum Source { HIT, MISS, REVALIDATED, COALESCED }
+    
+    private record Lookup(CachedResponse response, Source source) {
+    }
+    
+    private final ResponseCacheProperties properties;
+    private final Cache<String, CachedResponse> entries;
+    private final Map<String, Mono<Lookup>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> routeTtlNanos = new HashMap<>();
+    private final Set<String> varyHeaders;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.weight())
+                .recordStats()
+                .build();
+        properties.getRoutes().forEach(route ->
+                routeTtlNanos.put(route.getPath(), TimeUnit.SECONDS.toNanos(route.getTtlSeconds())));
+        this.varyHeaders = properties.getVaryHeaders().stream()
+                .map(header -> header.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "gateway.responses");
+        counter(meterRegistry, "HIT", hits);
+        counter(meterRegistry, "MISS", misses);
+        counter(meterRegistry, "REVALIDATED", revalidated);
+        counter(meterRegistry, "COALESCED", coalesced);
+        FunctionCounter.builder("gateway.cache.bytes.saved", bytesSaved, LongAdder::sum)
+                .description("Response body bytes served from the cache instead of the backend")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        log.info("Gateway response cache enabled for {} ({} bytes max)", routeTtlNanos.keySet(),
+                properties.getMaxBytes());
+    }
+    
+    /**
+     * Answer a GET from the cache, calling the backend on a miss or to revalidate a stale entry.
+     * Requests with credentials always go straight to the backend. The X-Cache header on the
+     * result tells whether this request itself reached the backend (MISS, REVALIDATED) or
+     * was answered from the cache or another request's backend call (HIT, COALESCED).
+     *
+     * @param backend performs the backend call with the given request headers
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> get(String path, String route, HttpHeaders requestHeaders,
+            Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend) {
+        if (requestHeaders.containsKey(HttpHeaders.AUTHORIZATION) || requestHeaders.containsKey(HttpHeaders.COOKIE)) {
+            return backend.apply(requestHeaders);
+        }
+        String key = cacheKey(path, requestHeaders);
+        
+        CachedResponse cached = entries.getIfPresent(key);
+        if (cached != null && cached.isFresh(System.nanoTime())) {
+            hits.increment();
+            bytesSaved.add(cached.body().length);
+            return Mono.just(toEntity(cached, Source.HIT, requestHeaders));
+        }
+        
+        boolean[] leader = new boolean[1];
+        Mono<Lookup> lookup = inFlight.computeIfAbsent(key, k -> {
+            leader[0] = true;
+            return load(k, cached, route, requestHeaders, backend)
+                    .doFinally(signal -> inFlight.remove(k))
+                    .cache();
+        });
+        if (leader[0]) {
+            return lookup.map(result -> toEntity(result.response(), result.source(), requestHeaders));
+        }
+        coalesced.increment();
+        return lookup.map(result -> toEntity(result.response(), Source.COALESCED, requestHeaders));
+    }
+    
+    /**
+     * Counters for /admin/stats
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum() + revalidated.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("revalidated", revalidated.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("bytesSaved", bytesSaved.sum());
+        stats.put("entries", entries.estimatedSize());
+        stats.put("evictions", entries.stats().evictionCount());
+        return stats;
+    }
+    
+    private Mono<Lookup> load(String key, CachedResponse stale, String route, HttpHeaders requestHeaders,
+                              Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend) {
+        HttpHeaders backendHeaders = new HttpHeaders();
+        requestHeaders.forEach((name, values) -> {
+            if (!CONDITIONAL_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                backendHeaders.addAll(name, values);
+            }
+        });
+        if (stale != null && stale.etag() != null) {
+            backendHeaders.setIfNoneMatch(stale.etag());
+        }
+        
+        return backend.apply(backendHeaders).flatMap(entity -> {
+            if (entity.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value() && stale != null) {
+                // Still current: keep the stored body and start a new freshness period
+                HttpHeaders policy = entity.getHeaders().getCacheControl() != null
+                        ? entity.getHeaders() : stale.headers();
+                long freshFor = freshnessNanos(policy, route);
+                return entity.getBody().doOnNext(DataBufferUtils::release).then(Mono.fromSupplier(() -> {
+                    CachedResponse refreshed = stale.refreshed(System.nanoTime() + Math.max(0, freshFor));
+                    entries.put(key, refreshed);
+                    revalidated.increment();
+                    bytesSaved.add(stale.body().length);
+                    return new Lookup(refreshed, Source.REVALIDATED);
+                }));
+            }
+            
+            return DataBufferUtils.join(entity.getBody())
+                    .map(buffer -> {
+                        byte[] bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        DataBufferUtils.release(buffer);
+                        return bytes;
+                    })
+                    .defaultIfEmpty(EMPTY)
+                    .map(body -> {
+                        misses.increment();
+                        HttpHeaders headers = entity.getHeaders();
+                        long freshFor = freshnessNanos(headers, route);
+                        CachedResponse response = new CachedResponse(entity.getStatusCode().value(), headers,
+                                body, headers.getETag(), System.nanoTime() + Math.max(0, freshFor));
+                        if (isStorable(response, freshFor)) {
+                            entries.put(key, response);
+                        }
+                        return new Lookup(response, Source.MISS);
+                    });
+        });
+    }
+    
+    private boolean isStorable(CachedResponse response, long freshForNanos) {
+        if (response.status() != HttpStatus.OK.value() || freshForNanos < 0
+                || response.body().length > properties.getMaxEntryBytes()) {
+            return false;
+        }
+        // A cookie belongs to one client; storing it would hand it to everyone else
+        if (response.headers().containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        for (String vary : response.headers().getVary()) {
+            if (!varyHeaders.contains(vary.trim().toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        // Without an ETag a zero-lifetime entry could never be reused
+        return freshForNanos > 0 || response.etag() != null;
+    }
+    
+    /**
+     * Freshness lifetime allowed by both the route TTL and the backend's Cache-Control;
+     * -1 when the response must not be stored at all. As a shared cache, s-maxage takes
+     * precedence over max-age.
+     */
+    long freshnessNanos(HttpHeaders headers, String route) {
+        long lifetime = routeTtlNanos.getOrDefault(route, 0L);
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return lifetime;
+        }
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+        for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-store") || directive.equals("private")) {
+                return -1;
+            }
+            if (directive.equals("no-cache")) {
+                return 0;
+            }
+            if (directive.startsWith("max-age=")) {
+                maxAge = seconds(directive);
+            } else if (directive.startsWith("s-maxage=")) {
+                sharedMaxAge = seconds(directive);
+            }
+        }
+        long allowed = sharedMaxAge >= 0 ? sharedMaxAge : maxAge;
+        return allowed >= 0 ? Math.min(lifetime, TimeUnit.SECONDS.toNanos(allowed)) : lifetime;
+    }
+    
+    // An unparseable age allows no reuse
+    private static long seconds(String directive) {
+        try {
+            return Math.max(0, Long.parseLong(directive.substring(directive.indexOf('=') + 1)));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private String cacheKey(String path, HttpHeaders requestHeaders) {
+        StringBuilder key = new StringBuilder(path);
+        for (String header : properties.getVaryHeaders()) {
+            List<String> values = requestHeaders.get(header);
+            key.append('\n');
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+    
+    private ResponseEntity<Flux<DataBuffer>> toEntity(CachedResponse response, Source source,
+                                                      HttpHeaders requestHeaders) {
+        // The client's own copy is current: answer 304 without a body
+        if (response.etag() != null && response.status() == HttpStatus.OK.value()) {
+            List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+            if (ifNoneMatch.contains(response.etag()) || ifNoneMatch.contains("*")) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(response.etag())
+                        .header(CACHE_STATUS_HEADER, source.name())
+                        .body(Flux.empty());
+            }
+        }
+        return ResponseEntity.status(response.status())
+                .headers(response.headers())
+                .header(CACHE_STATUS_HEADER, source.name())
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(response.body())));
+    }
+    
+    private static void counter(MeterRegistry meterRegistry, String result, LongAdder adder) {
+        FunctionCounter.builder("gateway.cache.requests", adder, LongAdder::sum)
+                .description("Cacheable GETs by how they were answered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
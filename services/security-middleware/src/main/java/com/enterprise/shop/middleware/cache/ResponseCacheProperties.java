@@ -0,0 +1,39 @@
+package com.enterprise.shop.middleware.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gateway response cache settings (cache.*). Only GETs to the listed route templates are
+ * cached, and only for as long as both the route TTL and the backend's Cache-Control allow.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class ResponseCacheProperties {
+    
+    private boolean enabled = false;
+    
+    /** Total size of cached bodies and headers */
+    private long maxBytes = 64L * 1024 * 1024;
+    
+    /** Larger responses are passed through but not stored */
+    private int maxEntryBytes = 1024 * 1024;
+    
+    /** Request headers a response may vary on; a Vary outside this list makes it uncacheable */
+    private List<String> varyHeaders = new ArrayList<>(List.of("Accept", "Accept-Encoding", "Origin",
+            "Access-Control-Request-Method", "Access-Control-Request-Headers"));
+    
+    private List<Route> routes = new ArrayList<>();
+    
+    @Data
+    public static class Route {
+        /** Route template as produced for metrics, e.g. /api/product/{id} */
+        private String path;
+        private long ttlSeconds = 30;
+    }
+}
@@ -0,0 +1,22 @@
+package com.enterprise.shop.middleware.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caps concurrent HTTP/2 streams per client connection when server.http2.enabled is set;
+ * Spring Boot then serves h2 over TLS and h2c on plain connections
+ */
+@Configuration
+public class Http2ServerConfig {
+    
+    @Value("${http2.max-concurrent-streams:200}")
+    private long maxConcurrentStreams;
+    
+    @Bean
+    public NettyServerCustomizer http2StreamLimitCustomizer() {
+        return httpServer -> httpServer.http2Settings(settings -> settings.maxConcurrentStreams(maxConcurrentStreams));
+    }
+}
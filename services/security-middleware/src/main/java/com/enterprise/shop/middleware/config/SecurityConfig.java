@@ -2,42 +2,61 @@ package com.enterprise.shop.middleware.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.authentication.preauth.x509.SubjectDnX509PrincipalExtractor;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
 import org.springframework.web.cors.CorsConfiguration;
-import org.springframework.web.cors.CorsConfigurationSource;
-import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
 import java.util.List;
 
 @Configuration
-@EnableWebSecurity
+@EnableWebFluxSecurity
 public class SecurityConfig {
     
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        SubjectDnX509PrincipalExtractor principalExtractor = new SubjectDnX509PrincipalExtractor();
+        principalExtractor.setSubjectDnRegex("CN=(.*?)(?:,|$)");
+        
         http
-            .csrf(AbstractHttpConfigurer::disable)
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
-            .sessionManagement(session -> 
-                session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
-            .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/actuator/**").permitAll()
-                .requestMatchers("/health/**").permitAll()
-                .anyRequest().permitAll()
+            // Stateless: never create or read a session
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            .authorizeExchange(auth -> auth
+                .pathMatchers("/actuator/**").permitAll()
+                .pathMatchers("/health/**").permitAll()
+                .anyExchange().permitAll()
             )
             // mTLS configuration is handled via SSL settings
             .x509(x509 -> x509
-                .subjectPrincipalRegex("CN=(.*?)(?:,|$)")
+                .principalExtractor(principalExtractor)
+                .authenticationManager(x509AuthenticationManager())
             );
         
         return http.build();
     }
     
+    /**
+     * Accept any certificate the TLS layer has already verified; whether the caller
+     * is a trusted service is decided by CertificateValidationService
+     */
+    private ReactiveAuthenticationManager x509AuthenticationManager() {
+        return authentication -> Mono.just(new PreAuthenticatedAuthenticationToken(
+                authentication.getPrincipal(),
+                authentication.getCredentials(),
+                AuthorityUtils.NO_AUTHORITIES));
+    }
+    
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -1,82 +1,140 @@
 package com.enterprise.shop.middleware.config;
 
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
-import javax.net.ssl.KeyManagerFactory;
-import javax.net.ssl.TrustManagerFactory;
-import java.io.FileInputStream;
-import java.security.KeyStore;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
+@RequiredArgsConstructor
 public class WebClientConfig {
     
+    private static final String EXCHANGE_START_KEY = WebClientConfig.class.getName() + ".exchangeStart";
+    
+    private final ObjectProvider<MtlsClientFactory> mtlsClientFactoryProvider;
+    
     @Value("${backend.service.url:http://backend-service:8080}")
     private String backendServiceUrl;
     
     @Value("${mtls.enabled:false}")
     private boolean mtlsEnabled;
     
-    @Value("${mtls.keystore.path:/certs/keystore.p12}")
-    private String keystorePath;
+    @Value("${backend.client.pool.max-connections:500}")
+    private int maxConnections;
+    
+    @Value("${backend.client.pool.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount;
+    
+    @Value("${backend.client.pool.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+    
+    @Value("${backend.client.pool.max-idle-time-ms:15000}")
+    private long maxIdleTimeMs;
+    
+    @Value("${backend.client.pool.max-life-time-ms:300000}")
+    private long maxLifeTimeMs;
+    
+    @Value("${backend.client.pool.evict-interval-ms:30000}")
+    private long evictIntervalMs;
+    
+    @Value("${backend.client.http2.enabled:false}")
+    private boolean http2Enabled;
     
-    @Value("${mtls.keystore.password:changeit}")
-    private String keystorePassword;
+    @Value("${backend.client.http2.max-concurrent-streams:100}")
+    private int maxConcurrentStreams;
     
-    @Value("${mtls.truststore.path:/certs/truststore.p12}")
-    private String truststorePath;
+    @Value("${backend.client.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
     
-    @Value("${mtls.truststore.password:changeit}")
-    private String truststorePassword;
+    @Value("${backend.client.response-timeout-ms:10000}")
+    private long responseTimeoutMs;
+    
+    /**
+     * Named pool for backend connections. Bounded connections and a bounded, timed
+     * acquire queue turn a backend restart into fast failures instead of a connect storm;
+     * idle connections are dropped before the backend's keep-alive timeout closes them.
+     * With HTTP/2 the pool multiplexes up to max-concurrent-streams requests per connection
+     * and only opens another connection once every existing one is saturated.
+     * Pool gauges are published under reactor.netty.connection.provider.*
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider backendConnectionProvider() {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("backend")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofMillis(evictIntervalMs))
+                .metrics(true);
+        if (http2Enabled) {
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .minConnections(1)
+                    .maxConnections(maxConnections)
+                    .maxConcurrentStreams(maxConcurrentStreams)
+                    .build());
+        }
+        return builder.build();
+    }
     
     @Bean
-    public WebClient backendWebClient() {
+    public WebClient backendWebClient(ConnectionProvider backendConnectionProvider, MeterRegistry meterRegistry) {
+        // The pool only exposes gauges, so acquire latency is measured from exchange
+        // subscription until the request is about to be written on a ready connection
+        Timer acquireTimer = Timer.builder("backend.client.acquire.time")
+                .description("Time to obtain a ready connection from the backend pool")
+                .tag("pool", "backend")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        
+        HttpClient httpClient = createHttpClient(backendConnectionProvider, acquireTimer);
         if (mtlsEnabled) {
-            return createMtlsWebClient();
+            return createMtlsWebClient(httpClient);
         }
+        // The default connector negotiates gzip and inflates it, which would strip the
+        // backend's Content-Encoding; a proxy must pass encoded bodies through untouched
+        return webClientBuilder(httpClient).build();
+    }
+    
+    private HttpClient createHttpClient(ConnectionProvider connectionProvider, Timer acquireTimer) {
+        // h2 is negotiated over ALPN on mTLS hops; plain hops speak h2c with prior knowledge
+        HttpProtocol protocol = !http2Enabled ? HttpProtocol.HTTP11
+                : mtlsEnabled ? HttpProtocol.H2 : HttpProtocol.H2C;
+        
+        return HttpClient.create(connectionProvider)
+                .protocol(protocol)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+                .keepAlive(true)
+                .doOnRequest((request, connection) -> request.currentContextView()
+                        .<Long>getOrEmpty(EXCHANGE_START_KEY)
+                        .ifPresent(start -> acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)));
+    }
+    
+    private WebClient.Builder webClientBuilder(HttpClient httpClient) {
         return WebClient.builder()
                 .baseUrl(backendServiceUrl)
-                .build();
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter((request, next) -> next.exchange(request)
+                        .contextWrite(context -> context.put(EXCHANGE_START_KEY, System.nanoTime())));
     }
     
-    private WebClient createMtlsWebClient() {
-        try {
-            // Load keystore
-            KeyStore keyStore = KeyStore.getInstance("PKCS12");
-            keyStore.load(new FileInputStream(keystorePath), keystorePassword.toCharArray());
-            
-            KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(
-                    KeyManagerFactory.getDefaultAlgorithm());
-            keyManagerFactory.init(keyStore, keystorePassword.toCharArray());
-            
-            // Load truststore
-            KeyStore trustStore = KeyStore.getInstance("PKCS12");
-            trustStore.load(new FileInputStream(truststorePath), truststorePassword.toCharArray());
-            
-            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
-                    TrustManagerFactory.getDefaultAlgorithm());
-            trustManagerFactory.init(trustStore);
-            
-            SslContext sslContext = SslContextBuilder.forClient()
-                    .keyManager(keyManagerFactory)
-                    .trustManager(trustManagerFactory)
-                    .build();
-            
-            HttpClient httpClient = HttpClient.create()
-                    .secure(spec -> spec.sslContext(sslContext));
-            
-            return WebClient.builder()
-                    .baseUrl(backendServiceUrl)
-                    .clientConnector(new ReactorClientHttpConnector(httpClient))
-                    .build();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create mTLS WebClient", e);
-        }
+    private WebClient createMtlsWebClient(HttpClient baseClient) {
+        MtlsClientFactory mtlsClientFactory = mtlsClientFactoryProvider.getObject();
+        return webClientBuilder(mtlsClientFactory.secure(baseClient, "backend")).build();
     }
 }
@@ -1,11 +1,21 @@
 package com.enterprise.shop.middleware.controller;
 
+import com.enterprise.shop.middleware.admission.AdmissionService;
+import com.enterprise.shop.middleware.audit.AuditLogQuery;
+import com.enterprise.shop.middleware.cache.ResponseCache;
+import com.enterprise.shop.middleware.metrics.RouteLatencyRecorder;
 import com.enterprise.shop.middleware.model.RequestLog;
+import com.enterprise.shop.middleware.resilience.BackendResilience;
 import com.enterprise.shop.middleware.service.CertificateValidationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,18 +26,42 @@ import java.util.Map;
 public class AdminController {
     
     private final CertificateValidationService validationService;
+    private final RouteLatencyRecorder latencyRecorder;
+    private final AdmissionService admissionService;
+    private final BackendResilience backendResilience;
+    private final ObjectProvider<ResponseCache> responseCache;
     
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("requestsByService", validationService.getRequestStats());
+        stats.put("requestBreakdown", validationService.getRequestBreakdown());
+        stats.put("latency", latencyRecorder.snapshot());
+        stats.put("admission", admissionService.getStats());
+        stats.put("circuits", backendResilience.getCircuitStates());
+        responseCache.ifAvailable(cache -> stats.put("responseCache", cache.getStats()));
+        Map<String, Long> auditLog = validationService.getAuditLogStats();
+        if (auditLog != null) {
+            stats.put("auditLog", auditLog);
+        }
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * Recent audit entries, optionally filtered by caller, endpoint prefix and time range
+     * (ISO date-times, from inclusive, to exclusive)
+     */
     @GetMapping("/logs")
-    public ResponseEntity<List<RequestLog>> getLogs(
-            @RequestParam(defaultValue = "50") int limit) {
-        return ResponseEntity.ok(validationService.getRecentLogs(limit));
+    public Mono<ResponseEntity<List<RequestLog>>> getLogs(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String callerService,
+            @RequestParam(required = false) String endpoint,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        AuditLogQuery query = new AuditLogQuery(callerService, endpoint, from, to, limit);
+        return Mono.fromCallable(() -> validationService.findLogs(query))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok);
     }
     
     @GetMapping("/health")
@@ -1,18 +1,35 @@
 package com.enterprise.shop.middleware.controller;
 
-import com.enterprise.shop.middleware.service.CertificateValidationService;
+import com.enterprise.shop.middleware.admission.AdmissionService;
+import com.enterprise.shop.middleware.admission.AdmissionService.Admission;
+import com.enterprise.shop.middleware.identity.ClientIdentity;
+import com.enterprise.shop.middleware.identity.ClientIdentityResolver;
+import com.enterprise.shop.middleware.resilience.CircuitOpenException;
+import com.enterprise.shop.middleware.routing.RouteDescriptor;
+import com.enterprise.shop.middleware.routing.RouteTable;
 import com.enterprise.shop.middleware.service.ProxyService;
-import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.security.cert.X509Certificate;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequestMapping("/api")
@@ -21,78 +38,145 @@ import java.security.cert.X509Certificate;
 public class GatewayController {
     
     private final ProxyService proxyService;
-    private final CertificateValidationService validationService;
+    private final ClientIdentityResolver identityResolver;
+    private final RouteTable routeTable;
+    private final AdmissionService admissionService;
+    
+    @Value("${proxy.streaming.enabled:true}")
+    private boolean streamingEnabled;
     
     /**
      * Catch-all handler that validates mTLS and forwards to backend
      */
     @RequestMapping(value = "/**", method = {
-            RequestMethod.GET, RequestMethod.POST, 
+            RequestMethod.GET, RequestMethod.POST,
             RequestMethod.PUT, RequestMethod.DELETE,
             RequestMethod.PATCH
     })
-    public Mono<ResponseEntity<String>> handleRequest(
-            HttpServletRequest request,
-            @RequestBody(required = false) String body,
-            @RequestHeader HttpHeaders headers) {
-        
-        // Extract client certificate CN
-        String clientCertCN = extractClientCertificateCN(request);
+    public Mono<Void> handleRequest(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpHeaders headers = request.getHeaders();
         
-        // For demo/non-mTLS mode, use header-based service identification
-        if (clientCertCN == null) {
-            clientCertCN = headers.getFirst("X-Client-Service");
-            if (clientCertCN == null) {
-                clientCertCN = "unknown";
-            }
-        }
-        
-        // Validate client certificate
-        boolean isValid = validationService.validateClientCertificate(clientCertCN);
+        // Client certificate CN and trust decision, memoized per certificate
+        ClientIdentity identity = identityResolver.resolve(request);
+        String clientCertCN = identity.commonName();
+        boolean isValid = identity.trusted();
         
         // In demo mode, allow all requests but log validation status
         if (!isValid) {
             log.warn("Request from untrusted service: {}, but allowing in demo mode", clientCertCN);
         }
         
-        // Get the path after /api
-        String fullPath = request.getRequestURI();
-        String queryString = request.getQueryString();
+        // Shed load before touching the backend
+        Admission admission = admissionService.tryAdmit(clientCertCN, isValid);
+        if (!admission.admitted()) {
+            return writeRejection(exchange.getResponse(), admission, isValid);
+        }
+        long admittedAt = System.nanoTime();
+        AtomicLong backendNanos = new AtomicLong(-1);
+        AtomicBoolean backendFailed = new AtomicBoolean();
+        
+        // Forward the raw path and query exactly as received
+        String fullPath = request.getURI().getRawPath();
+        String queryString = request.getURI().getRawQuery();
         if (queryString != null) {
             fullPath = fullPath + "?" + queryString;
         }
         
-        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        HttpMethod method = request.getMethod();
+        
+        RouteDescriptor route = routeTable.lookup(request.getURI().getRawPath());
+        String path = fullPath;
+        String callerService = clientCertCN;
+        Mono<ResponseEntity<Flux<DataBuffer>>> response = Mono.defer(() -> streamingEnabled
+                ? proxyService.forwardStreaming(route, path, method, request.getBody(), headers, callerService)
+                : forwardBuffered(request, route, path, method, callerService));
         
-        return proxyService.forwardRequest(fullPath, method, body, headers, clientCertCN)
-                .map(response -> ResponseEntity.ok()
-                        .header("X-Proxied-By", "security-middleware")
-                        .header("X-Client-Validated", String.valueOf(isValid))
-                        .body(response))
+        return response
                 .onErrorResume(error -> {
                     log.error("Error forwarding request: {}", error.getMessage());
-                    return Mono.just(ResponseEntity
-                            .status(HttpStatus.BAD_GATEWAY)
-                            .body("{\"error\": \"" + error.getMessage() + "\"}"));
+                    ResponseEntity.BodyBuilder builder;
+                    if (error instanceof CircuitOpenException circuitOpen) {
+                        builder = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER,
+                                        String.valueOf(Math.max(1, (circuitOpen.getRetryAfterMs() + 999) / 1000)));
+                    } else if (error instanceof TimeoutException) {
+                        builder = ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT);
+                    } else {
+                        builder = ResponseEntity.status(HttpStatus.BAD_GATEWAY);
+                    }
+                    return Mono.just(builder
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(toBody("{\"error\": \"" + error.getMessage() + "\"}")));
+                })
+                .flatMap(entity -> {
+                    // Judge the backend by its time to first byte, not by how fast the client reads
+                    backendNanos.set(System.nanoTime() - admittedAt);
+                    backendFailed.set(entity.getStatusCode().is5xxServerError());
+                    // A body that breaks off is the backend's failure; a failed write to the client is not
+                    Flux<DataBuffer> body = entity.getBody().doOnError(error -> backendFailed.set(true));
+                    return writeResponse(exchange.getResponse(),
+                            new ResponseEntity<>(body, entity.getHeaders(), entity.getStatusCode()), isValid);
+                })
+                .doFinally(signal -> {
+                    if (backendNanos.get() < 0) {
+                        // Cancelled before the backend answered, so there is nothing to judge it by
+                        admissionService.releaseIgnored();
+                    } else {
+                        admissionService.release(backendNanos.get(), backendFailed.get());
+                    }
                 });
     }
     
     /**
-     * Extract CN from client certificate
+     * Fast 429 (caller over its rate) or 503 (backend concurrency limit reached) with Retry-After
      */
-    private String extractClientCertificateCN(HttpServletRequest request) {
-        X509Certificate[] certs = (X509Certificate[]) request.getAttribute(
-                "jakarta.servlet.request.X509Certificate");
-        
-        if (certs != null && certs.length > 0) {
-            String dn = certs[0].getSubjectX500Principal().getName();
-            // Extract CN from DN
-            for (String part : dn.split(",")) {
-                if (part.trim().startsWith("CN=")) {
-                    return part.trim().substring(3);
-                }
-            }
-        }
-        return null;
+    private Mono<Void> writeRejection(ServerHttpResponse response, Admission admission, boolean isValid) {
+        boolean rateLimited = admission.status() == AdmissionService.Status.RATE_LIMITED;
+        response.setStatusCode(rateLimited ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()));
+        response.getHeaders().set("X-Proxied-By", "security-middleware");
+        response.getHeaders().set("X-Client-Validated", String.valueOf(isValid));
+        String error = rateLimited ? "Rate limit exceeded" : "Service overloaded";
+        return response.writeWith(toBody("{\"error\": \"" + error + "\"}"));
+    }
+    
+    /**
+     * Write the backend response as-is. Going through the codecs would renegotiate
+     * the content type, so status, headers and body are copied straight across.
+     */
+    private Mono<Void> writeResponse(ServerHttpResponse response, ResponseEntity<Flux<DataBuffer>> entity,
+                                     boolean isValid) {
+        response.setStatusCode(entity.getStatusCode());
+        response.getHeaders().addAll(entity.getHeaders());
+        response.getHeaders().set("X-Proxied-By", "security-middleware");
+        response.getHeaders().set("X-Client-Validated", String.valueOf(isValid));
+        return response.writeWith(entity.getBody());
+    }
+    
+    /**
+     * Aggregate the request body and the backend response in memory
+     * (proxy.streaming.enabled=false)
+     */
+    private Mono<ResponseEntity<Flux<DataBuffer>>> forwardBuffered(ServerHttpRequest request, RouteDescriptor route,
+                                                                  String fullPath, HttpMethod method,
+                                                                  String clientCertCN) {
+        return DataBufferUtils.join(request.getBody())
+                .map(buffer -> {
+                    String body = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return body;
+                })
+                .defaultIfEmpty("")
+                .flatMap(body -> proxyService.forwardRequest(route, fullPath, method, body, request.getHeaders(),
+                        clientCertCN))
+                .map(body -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(toBody(body)));
+    }
+    
+    private static Flux<DataBuffer> toBody(String body) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8)));
     }
 }
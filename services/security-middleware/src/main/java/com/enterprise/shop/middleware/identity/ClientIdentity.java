@@ -0,0 +1,10 @@
+package com.enterprise.shop.middleware.identity;
+
+/**
+ * Caller as identified by its client certificate, or by the X-Client-Service header
+ * when the connection carries no certificate
+ */
+public record ClientIdentity(String commonName, boolean trusted) {
+    
+    public static final ClientIdentity UNKNOWN = new ClientIdentity("unknown", false);
+}
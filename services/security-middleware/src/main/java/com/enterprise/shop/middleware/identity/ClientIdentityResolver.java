@@ -0,0 +1,113 @@
+package com.enterprise.shop.middleware.identity;
+
+import com.enterprise.shop.middleware.service.CertificateValidationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.SslInfo;
+import org.springframework.stereotype.Component;
+
+import javax.naming.InvalidNameException;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.HexFormat;
+
+/**
+ * Resolves and memoizes who is calling. A TLS session hands out the same certificate
+ * object for every request on it, so the first lookup is by object identity and costs
+ * no hashing. A new session presenting a known certificate is matched by its SHA-256
+ * fingerprint, and only a certificate never seen before has its DN parsed and trust
+ * decided.
+ */
+@Component
+@Slf4j
+public class ClientIdentityResolver {
+    
+    private static final String CLIENT_SERVICE_HEADER = "X-Client-Service";
+    
+    private final CertificateValidationService validationService;
+    private final Cache<X509Certificate, ClientIdentity> byCertificate;
+    private final Cache<String, ClientIdentity> byFingerprint;
+    private final Cache<String, ClientIdentity> byHeader;
+    
+    public ClientIdentityResolver(CertificateValidationService validationService,
+                                  @Value("${identity.cache.max-entries:1000}") long maxEntries) {
+        this.validationService = validationService;
+        // Weak keys compare by identity and let certificates go with their sessions
+        this.byCertificate = Caffeine.newBuilder().weakKeys().maximumSize(maxEntries).build();
+        this.byFingerprint = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        this.byHeader = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+    
+    public ClientIdentity resolve(ServerHttpRequest request) {
+        SslInfo sslInfo = request.getSslInfo();
+        X509Certificate[] certs = sslInfo != null ? sslInfo.getPeerCertificates() : null;
+        if (certs != null && certs.length > 0) {
+            ClientIdentity identity = byCertificate.getIfPresent(certs[0]);
+            if (identity != null) {
+                return identity;
+            }
+            identity = fromCertificate(certs[0]);
+            if (identity != null) {
+                byCertificate.put(certs[0], identity);
+                return identity;
+            }
+        }
+        
+        // For demo/non-mTLS mode, use header-based service identification
+        String service = request.getHeaders().getFirst(CLIENT_SERVICE_HEADER);
+        if (service == null) {
+            return ClientIdentity.UNKNOWN;
+        }
+        return byHeader.get(service, this::validate);
+    }
+    
+    private ClientIdentity fromCertificate(X509Certificate certificate) {
+        String fingerprint;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded());
+            fingerprint = HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            throw new RuntimeException("Failed to fingerprint client certificate", e);
+        }
+        
+        ClientIdentity identity = byFingerprint.getIfPresent(fingerprint);
+        if (identity != null) {
+            return identity;
+        }
+        String commonName = commonName(certificate);
+        if (commonName == null) {
+            log.warn("Client certificate {} has no CN", certificate.getSubjectX500Principal().getName());
+            return null;
+        }
+        identity = validate(commonName);
+        byFingerprint.put(fingerprint, identity);
+        return identity;
+    }
+    
+    private ClientIdentity validate(String commonName) {
+        return new ClientIdentity(commonName, validationService.validateClientCertificate(commonName));
+    }
+    
+    private static String commonName(X509Certificate certificate) {
+        try {
+            LdapName dn = new LdapName(certificate.getSubjectX500Principal().getName());
+            // Most specific RDN comes last in LdapName order
+            for (int i = dn.size() - 1; i >= 0; i--) {
+                Rdn rdn = dn.getRdn(i);
+                if ("CN".equalsIgnoreCase(rdn.getType())) {
+                    return rdn.getValue().toString();
+                }
+            }
+        } catch (InvalidNameException e) {
+            log.warn("Unparseable client certificate subject: {}", e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.enterprise.shop.middleware.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts broken down by caller CN, protocol type, HTTP method and result.
+ * Every cell is a LongAdder allocated up front, so counting a request is an index
+ * computation and a striped add: no boxing, no map writes and no shared CAS hot spot.
+ * Callers outside the known list, and unexpected protocols, methods or results, land
+ * in an "other" bucket of their dimension so the matrix never grows.
+ */
+public class RequestCounters {
+    
+    public static final String METRIC_NAME = "gateway.requests";
+    
+    private static final String OTHER = "other";
+    private static final String[] PROTOCOLS = {"REST", "SOAP", "GraphQL", OTHER};
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", OTHER};
+    private static final String[] RESULTS = {"ALLOWED", "ERROR", OTHER};
+    
+    private final String[] callers;
+    private final Map<String, Integer> callerIndex = new HashMap<>();
+    private final LongAdder[] cells;
+    
+    public RequestCounters(List<String> knownCallers, MeterRegistry meterRegistry) {
+        this.callers = new String[knownCallers.size() + 1];
+        for (int i = 0; i < knownCallers.size(); i++) {
+            callers[i] = knownCallers.get(i);
+            callerIndex.put(knownCallers.get(i), i);
+        }
+        callers[callers.length - 1] = OTHER;
+        
+        this.cells = new LongAdder[callers.length * PROTOCOLS.length * METHODS.length * RESULTS.length];
+        for (int c = 0; c < callers.length; c++) {
+            for (int p = 0; p < PROTOCOLS.length; p++) {
+                for (int m = 0; m < METHODS.length; m++) {
+                    for (int r = 0; r < RESULTS.length; r++) {
+                        LongAdder cell = new LongAdder();
+                        cells[index(c, p, m, r)] = cell;
+                        FunctionCounter.builder(METRIC_NAME, cell, LongAdder::sum)
+                                .description("Requests proxied by the gateway")
+                                .tag("caller", callers[c])
+                                .tag("protocol", PROTOCOLS[p])
+                                .tag("method", METHODS[m])
+                                .tag("result", RESULTS[r])
+                                .register(meterRegistry);
+                    }
+                }
+            }
+        }
+    }
+    
+    public void increment(String callerService, String protocolType, String method, String result) {
+        Integer caller = callerService != null ? callerIndex.get(callerService) : null;
+        cells[index(caller != null ? caller : callers.length - 1,
+                protocolIndex(protocolType), methodIndex(method), resultIndex(result))].increment();
+    }
+    
+    /**
+     * Total requests per caller, including callers with no requests yet
+     */
+    public Map<String, Long> totalsByCaller() {
+        int perCaller = PROTOCOLS.length * METHODS.length * RESULTS.length;
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (int c = 0; c < callers.length; c++) {
+            long total = 0;
+            for (int i = c * perCaller; i < (c + 1) * perCaller; i++) {
+                total += cells[i].sum();
+            }
+            totals.put(callers[c], total);
+        }
+        return totals;
+    }
+    
+    /**
+     * Non-zero counts as caller -> protocol -> method -> result -> count. Each cell is read
+     * independently, so the snapshot is not atomic across cells while requests are in flight.
+     */
+    public Map<String, Map<String, Map<String, Map<String, Long>>>> snapshot() {
+        Map<String, Map<String, Map<String, Map<String, Long>>>> snapshot = new LinkedHashMap<>();
+        for (int c = 0; c < callers.length; c++) {
+            for (int p = 0; p < PROTOCOLS.length; p++) {
+                for (int m = 0; m < METHODS.length; m++) {
+                    for (int r = 0; r < RESULTS.length; r++) {
+                        long count = cells[index(c, p, m, r)].sum();
+                        if (count == 0) {
+                            continue;
+                        }
+                        snapshot.computeIfAbsent(callers[c], k -> new LinkedHashMap<>())
+                                .computeIfAbsent(PROTOCOLS[p], k -> new LinkedHashMap<>())
+                                .computeIfAbsent(METHODS[m], k -> new LinkedHashMap<>())
+                                .put(RESULTS[r], count);
+                    }
+                }
+            }
+        }
+        return snapshot;
+    }
+    
+    private static int index(int caller, int protocol, int method, int result) {
+        return ((caller * PROTOCOLS.length + protocol) * METHODS.length + method) * RESULTS.length + result;
+    }
+    
+    private static int protocolIndex(String protocolType) {
+        if (protocolType == null) {
+            return PROTOCOLS.length - 1;
+        }
+        return switch (protocolType) {
+            case "REST" -> 0;
+            case "SOAP" -> 1;
+            case "GraphQL" -> 2;
+            default -> PROTOCOLS.length - 1;
+        };
+    }
+    
+    private static int methodIndex(String method) {
+        if (method == null) {
+            return METHODS.length - 1;
+        }
+        return switch (method) {
+            case "GET" -> 0;
+            case "POST" -> 1;
+            case "PUT" -> 2;
+            case "DELETE" -> 3;
+            case "PATCH" -> 4;
+            default -> METHODS.length - 1;
+        };
+    }
+    
+    private static int resultIndex(String result) {
+        if (result == null) {
+            return RESULTS.length - 1;
+        }
+        return switch (result) {
+            case "ALLOWED" -> 0;
+            case "ERROR" -> 1;
+            default -> RESULTS.length - 1;
+        };
+    }
+}
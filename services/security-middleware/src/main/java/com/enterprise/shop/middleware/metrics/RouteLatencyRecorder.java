@@ -0,0 +1,174 @@
+package com.enterprise.shop.middleware.metrics;
+
+import com.enterprise.shop.middleware.service.CertificateValidationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-route latency of proxied requests, tagged by caller service, protocol type, route
+ * template and outcome. The caller CN comes from the client, so callers outside the
+ * trusted list share an "other" series, as in RequestCounters. Each series is a Micrometer Timer backed by a time-windowed
+ * HdrHistogram, so published percentiles cover the last window-seconds rather than the
+ * whole uptime. Once a series exists, recording is a few map lookups and a histogram
+ * increment with no allocation.
+ */
+@Component
+public class RouteLatencyRecorder {
+    
+    public static final String METRIC_NAME = "gateway.request.latency";
+    
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] PERCENTILE_KEYS = {"p50Ms", "p90Ms", "p99Ms", "p999Ms"};
+    private static final String OTHER = "other";
+    
+    public enum Outcome {
+        SUCCESS, CLIENT_ERROR, SERVER_ERROR, ERROR;
+        
+        public static Outcome of(HttpStatusCode status) {
+            if (status.is5xxServerError()) {
+                return SERVER_ERROR;
+            }
+            return status.is4xxClientError() ? CLIENT_ERROR : SUCCESS;
+        }
+    }
+    
+    private final MeterRegistry meterRegistry;
+    private final Set<String> knownCallers;
+    private final Duration window;
+    private final int bufferLength;
+    private final int maxRoutes;
+    
+    // caller -> protocol -> route template -> timer per outcome
+    private final Map<String, Map<String, Map<String, RouteTimers>>> series = new ConcurrentHashMap<>();
+    private final AtomicInteger routeCount = new AtomicInteger();
+    
+    @Autowired
+    public RouteLatencyRecorder(MeterRegistry meterRegistry,
+                                @Value("${metrics.latency.window-seconds:60}") long windowSeconds,
+                                @Value("${metrics.latency.buffer-length:3}") int bufferLength,
+                                @Value("${metrics.latency.max-routes:500}") int maxRoutes) {
+        this(meterRegistry, CertificateValidationService.TRUSTED_SERVICES, windowSeconds, bufferLength, maxRoutes);
+    }
+    
+    public RouteLatencyRecorder(MeterRegistry meterRegistry, Set<String> knownCallers,
+                                long windowSeconds, int bufferLength, int maxRoutes) {
+        this.meterRegistry = meterRegistry;
+        this.knownCallers = knownCallers;
+        this.window = Duration.ofSeconds(windowSeconds);
+        this.bufferLength = bufferLength;
+        this.maxRoutes = maxRoutes;
+    }
+    
+    /**
+     * Record one request. The route should already be a template (see RouteTable)
+     * so that ids in the path don't create a series each.
+     */
+    public void record(String callerService, String protocolType, String route, Outcome outcome, long nanos) {
+        String caller = callerService != null && knownCallers.contains(callerService) ? callerService : OTHER;
+        RouteTimers routeTimers = timersFor(caller, protocolType, route);
+        Timer timer = routeTimers.timers[outcome.ordinal()];
+        if (timer == null) {
+            // Registration is idempotent, so a racing thread just gets the same Timer back
+            timer = register(caller, protocolType, routeTimers.route, outcome);
+            routeTimers.timers[outcome.ordinal()] = timer;
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Percentiles for every series over the current window, busiest first
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        series.forEach((caller, byProtocol) -> byProtocol.forEach((protocol, byRoute) ->
+                byRoute.forEach((route, routeTimers) -> {
+                    for (Outcome outcome : Outcome.values()) {
+                        Timer timer = routeTimers.timers[outcome.ordinal()];
+                        if (timer == null) {
+                            continue;
+                        }
+                        HistogramSnapshot snapshot = timer.takeSnapshot();
+                        Map<String, Object> entry = new LinkedHashMap<>();
+                        entry.put("callerService", caller);
+                        entry.put("protocolType", protocol);
+                        entry.put("route", route);
+                        entry.put("outcome", outcome.name());
+                        entry.put("count", timer.count());
+                        entry.put("windowMaxMs", snapshot.max(TimeUnit.MILLISECONDS));
+                        ValueAtPercentile[] values = snapshot.percentileValues();
+                        for (int i = 0; i < values.length && i < PERCENTILE_KEYS.length; i++) {
+                            entry.put(PERCENTILE_KEYS[i], values[i].value(TimeUnit.MILLISECONDS));
+                        }
+                        result.add(entry);
+                    }
+                })));
+        result.sort((a, b) -> Long.compare((long) b.get("count"), (long) a.get("count")));
+        return result;
+    }
+    
+    private RouteTimers timersFor(String callerService, String protocolType, String route) {
+        Map<String, RouteTimers> byRoute = routesFor(callerService, protocolType);
+        RouteTimers routeTimers = byRoute.get(route);
+        if (routeTimers != null) {
+            return routeTimers;
+        }
+        // Cap the number of routes so unexpected paths can't grow the registry without bound
+        if (routeCount.get() >= maxRoutes) {
+            return byRoute.computeIfAbsent(OTHER, RouteTimers::new);
+        }
+        return byRoute.computeIfAbsent(route, r -> {
+            routeCount.incrementAndGet();
+            return new RouteTimers(r);
+        });
+    }
+    
+    private Map<String, RouteTimers> routesFor(String callerService, String protocolType) {
+        Map<String, Map<String, RouteTimers>> byProtocol = series.get(callerService);
+        if (byProtocol == null) {
+            byProtocol = series.computeIfAbsent(callerService, c -> new ConcurrentHashMap<>());
+        }
+        Map<String, RouteTimers> byRoute = byProtocol.get(protocolType);
+        if (byRoute == null) {
+            byRoute = byProtocol.computeIfAbsent(protocolType, p -> new ConcurrentHashMap<>());
+        }
+        return byRoute;
+    }
+    
+    private Timer register(String callerService, String protocolType, String route, Outcome outcome) {
+        return Timer.builder(METRIC_NAME)
+                .description("Gateway request latency from receipt to the end of the backend response")
+                .tag("caller", callerService)
+                .tag("protocol", protocolType)
+                .tag("route", route)
+                .tag("outcome", outcome.name())
+                .publishPercentiles(PERCENTILES)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(bufferLength)
+                .register(meterRegistry);
+    }
+    
+    private static final class RouteTimers {
+        private final String route;
+        private final Timer[] timers = new Timer[Outcome.values().length];
+        
+        private RouteTimers(String route) {
+            this.route = route;
+        }
+    }
+}
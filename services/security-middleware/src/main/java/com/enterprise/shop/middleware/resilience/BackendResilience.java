@@ -0,0 +1,288 @@
+package com.enterprise.shop.middleware.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Per-route resilience around backend calls. Every attempt is bounded by a timeout and
+ * counted by the route's circuit breaker, which fails calls fast while the route is
+ * unhealthy. GETs, and only GETs, are additionally retried with jittered exponential
+ * backoff on connection errors, timeouts and 502/503/504, and can be hedged: if an
+ * attempt has not answered within the route's p95 a second one is started and whichever
+ * answers first wins. Hedges and retries share one budget of max-retries extra attempts
+ * per call. A result that loses the hedge race is handed to the caller's discard callback
+ * so that resources it holds, such as an unread response body, are released.
+ */
+@Component
+@Slf4j
+public class BackendResilience {
+    
+    private static final String OVERFLOW_ROUTE = "other";
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final ResilienceProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteState> routes = new ConcurrentHashMap<>();
+    private final AtomicInteger routeCount = new AtomicInteger();
+    
+    public BackendResilience(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    /**
+     * Run a backend call through the breaker, retries and hedging of its route.
+     * The supplier is invoked once per attempt, so it must build a fresh request each time.
+     *
+     * @param failed marks a successful response as a failure for the breaker, e.g. a 5xx entity
+     */
+    public <T> Mono<T> execute(String route, HttpMethod method, Supplier<Mono<T>> call, Predicate<T> failed) {
+        return execute(route, method, call, failed, result -> { });
+    }
+    
+    /**
+     * As {@link #execute(String, HttpMethod, Supplier, Predicate)}, for results that hold
+     * resources.
+     *
+     * @param discard releases a result that arrived after another hedged attempt had already won
+     */
+    public <T> Mono<T> execute(String route, HttpMethod method, Supplier<Mono<T>> call, Predicate<T> failed,
+                               Consumer<T> discard) {
+        RouteState state = stateFor(route);
+        Mono<T> attempt = Mono.defer(() -> attempt(state, call, failed));
+        
+        ResilienceProperties.Retry retry = properties.getRetry();
+        if (method != HttpMethod.GET || retry.getMaxRetries() <= 0) {
+            return attempt;
+        }
+        
+        return Mono.defer(() -> {
+            // Extra attempts left for this call, taken by hedges and retries alike
+            AtomicInteger budget = new AtomicInteger(retry.getMaxRetries());
+            Mono<T> attempts = properties.getHedge().isEnabled()
+                    ? hedged(state, call, failed, budget, discard) : attempt;
+            return attempts.retryWhen(Retry.backoff(retry.getMaxRetries(), Duration.ofMillis(retry.getBackoffMs()))
+                    .maxBackoff(Duration.ofMillis(retry.getMaxBackoffMs()))
+                    .jitter(retry.getJitter())
+                    .filter(error -> isRetryable(error) && takeAttempt(budget))
+                    .doBeforeRetry(signal -> state.retries.increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+        });
+    }
+    
+    /**
+     * Breaker state per route for /admin/stats
+     */
+    public Map<String, String> getCircuitStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        routes.forEach((route, state) -> states.put(route, state.breaker.getState().name()));
+        return states;
+    }
+    
+    private <T> Mono<T> attempt(RouteState state, Supplier<Mono<T>> call, Predicate<T> failed) {
+        boolean breakerEnabled = properties.getCircuitBreaker().isEnabled();
+        if (breakerEnabled) {
+            long retryAfterMs = state.breaker.tryAcquire();
+            if (retryAfterMs > 0) {
+                state.rejected.increment();
+                return Mono.error(new CircuitOpenException(state.route, retryAfterMs));
+            }
+        }
+        long start = System.nanoTime();
+        return call.get()
+                .timeout(Duration.ofMillis(properties.getAttemptTimeoutMs()))
+                .doOnSuccess(result -> {
+                    state.attemptLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (breakerEnabled) {
+                        state.breaker.onResult(result != null && failed.test(result));
+                    }
+                })
+                .doOnError(error -> {
+                    if (breakerEnabled) {
+                        // A 4xx is the caller's fault, not a sign of an unhealthy backend
+                        state.breaker.onResult(!(error instanceof WebClientResponseException response
+                                && response.getStatusCode().is4xxClientError()));
+                    }
+                })
+                .doFinally(signal -> {
+                    if (breakerEnabled && signal == SignalType.CANCEL) {
+                        state.breaker.onCancel();
+                    }
+                });
+    }
+    
+    /**
+     * Whether a backend status is worth another attempt of a GET
+     */
+    public static boolean isRetryableStatus(HttpStatusCode status) {
+        int code = status.value();
+        return code == 502 || code == 503 || code == 504;
+    }
+    
+    private <T> Mono<T> hedged(RouteState state, Supplier<Mono<T>> call, Predicate<T> failed,
+                               AtomicInteger budget, Consumer<T> discard) {
+        long delayNanos = state.hedgeDelayNanos();
+        if (delayNanos <= 0) {
+            return Mono.defer(() -> attempt(state, call, failed));
+        }
+        return Mono.defer(() -> {
+            // Only one result may win. The check sits right on the backend call, ahead of the
+            // timeout and cancellation handling that would otherwise drop a late result unreleased.
+            AtomicBoolean decided = new AtomicBoolean();
+            Supplier<Mono<T>> claimed = () -> call.get().filter(result -> claim(decided, result, discard));
+            Mono<T> attempt = Mono.defer(() -> attempt(state, claimed, failed));
+            
+            // A first attempt that fails before the hedge is due skips the hedge; retries take over
+            Sinks.One<Boolean> firstFailed = Sinks.one();
+            Mono<T> first = attempt.doOnError(error -> firstFailed.tryEmitValue(true));
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delayNanos))
+                    .takeUntilOther(firstFailed.asMono())
+                    .filter(tick -> takeAttempt(budget))
+                    .flatMap(tick -> attempt
+                            .doOnSubscribe(subscription -> state.hedgesFired.increment())
+                            .doOnNext(result -> state.hedgesWon.increment()));
+            // The loser is cancelled as soon as either attempt produces a response
+            return Mono.firstWithValue(first, hedge)
+                    .onErrorMap(NoSuchElementException.class, BackendResilience::firstAttemptError);
+        });
+    }
+    
+    private static <T> boolean claim(AtomicBoolean decided, T result, Consumer<T> discard) {
+        if (decided.compareAndSet(false, true)) {
+            return true;
+        }
+        discard.accept(result);
+        return false;
+    }
+    
+    private static boolean takeAttempt(AtomicInteger budget) {
+        return budget.getAndUpdate(left -> Math.max(0, left - 1)) > 0;
+    }
+    
+    /**
+     * When the first attempt fails and the hedge fails too or is skipped, surface the first
+     * attempt's error so retries and error mapping see the real cause instead of
+     * firstWithValue's composite
+     */
+    private static Throwable firstAttemptError(NoSuchElementException error) {
+        List<Throwable> causes = Exceptions.unwrapMultiple(error.getCause());
+        return causes.isEmpty() || causes.get(0) == null ? error : causes.get(0);
+    }
+    
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return isRetryableStatus(response.getStatusCode());
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+    
+    private RouteState stateFor(String route) {
+        RouteState state = routes.get(route);
+        if (state != null) {
+            return state;
+        }
+        if (routeCount.get() >= properties.getMaxRoutes()) {
+            return routes.computeIfAbsent(OVERFLOW_ROUTE, RouteState::new);
+        }
+        return routes.computeIfAbsent(route, r -> {
+            routeCount.incrementAndGet();
+            return new RouteState(r);
+        });
+    }
+    
+    private final class RouteState {
+        
+        private final String route;
+        private final CircuitBreaker breaker;
+        private final Timer attemptLatency;
+        private final Counter retries;
+        private final Counter rejected;
+        private final Counter hedgesFired;
+        private final Counter hedgesWon;
+        
+        private volatile long hedgeDelayNanos;
+        private volatile long hedgeDelayComputedAt = System.nanoTime() - HEDGE_DELAY_REFRESH_NANOS;
+        
+        private RouteState(String route) {
+            this.route = route;
+            this.breaker = new CircuitBreaker(properties.getCircuitBreaker(), (from, to) -> {
+                log.warn("Circuit for {} changed from {} to {}", route, from, to);
+                Counter.builder("gateway.circuit.transitions")
+                        .description("Circuit breaker state changes")
+                        .tag("route", route)
+                        .tag("from", from.name())
+                        .tag("to", to.name())
+                        .register(meterRegistry)
+                        .increment();
+            });
+            Gauge.builder("gateway.circuit.state", breaker, b -> b.getState().ordinal())
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                    .tag("route", route)
+                    .register(meterRegistry);
+            this.attemptLatency = Timer.builder("gateway.backend.attempt.latency")
+                    .description("Latency of individual backend attempts, used to time hedges")
+                    .tag("route", route)
+                    .publishPercentiles(properties.getHedge().getPercentile())
+                    .register(meterRegistry);
+            this.retries = counter("gateway.backend.retries", "Backend attempts retried");
+            this.rejected = counter("gateway.circuit.rejected", "Calls failed fast by an open circuit");
+            this.hedgesFired = counter("gateway.hedge.fired", "Hedged attempts started");
+            this.hedgesWon = counter("gateway.hedge.won", "Hedged attempts that answered first");
+        }
+        
+        /**
+         * The configured percentile of attempt latency, recomputed at most once a second;
+         * 0 until the route has enough samples to hedge
+         */
+        private long hedgeDelayNanos() {
+            long now = System.nanoTime();
+            if (now - hedgeDelayComputedAt >= HEDGE_DELAY_REFRESH_NANOS) {
+                hedgeDelayComputedAt = now;
+                ResilienceProperties.Hedge hedge = properties.getHedge();
+                if (attemptLatency.count() < hedge.getMinSamples()) {
+                    hedgeDelayNanos = 0;
+                } else {
+                    double percentile = attemptLatency.takeSnapshot().percentileValues()[0]
+                            .value(TimeUnit.NANOSECONDS);
+                    hedgeDelayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(hedge.getMinDelayMs()),
+                            (long) percentile);
+                }
+            }
+            return hedgeDelayNanos;
+        }
+        
+        private Counter counter(String name, String description) {
+            return Counter.builder(name)
+                    .description(description)
+                    .tag("route", route)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.enterprise.shop.middleware.resilience;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Count-based circuit breaker. Opens when the failure rate over the last windowSize calls
+ * reaches the threshold, rejects calls for openDuration, then lets halfOpenCalls trial
+ * calls through: any failure reopens it, all of them succeeding closes it.
+ */
+class CircuitBreaker {
+    
+    enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    private final ResilienceProperties.CircuitBreaker config;
+    private final long openDurationNanos;
+    private final BiConsumer<State, State> onTransition;
+    
+    // Guarded by this
+    private final boolean[] window;
+    private int windowCount;
+    private int windowNext;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    
+    CircuitBreaker(ResilienceProperties.CircuitBreaker config, BiConsumer<State, State> onTransition) {
+        this.config = config;
+        this.openDurationNanos = config.getOpenDurationMs() * 1_000_000L;
+        this.onTransition = onTransition;
+        this.window = new boolean[Math.max(1, config.getWindowSize())];
+    }
+    
+    /**
+     * Returns 0 if the call may proceed, otherwise the milliseconds until the circuit half-opens
+     */
+    synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            long remaining = openDurationNanos - (System.nanoTime() - openedAtNanos);
+            if (remaining > 0) {
+                return Math.max(1, remaining / 1_000_000L);
+            }
+            transition(State.HALF_OPEN);
+            halfOpenPermits = config.getHalfOpenCalls();
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return 1;
+            }
+            halfOpenPermits--;
+        }
+        return 0;
+    }
+    
+    synchronized void onResult(boolean failed) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failed) {
+                    open();
+                } else if (++halfOpenSuccesses >= config.getHalfOpenCalls()) {
+                    resetWindow();
+                    transition(State.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                record(failed);
+                if (windowCount >= config.getMinimumCalls()
+                        && windowFailures * 100 >= config.getFailureRateThreshold() * windowCount) {
+                    open();
+                }
+            }
+            default -> {
+                // Calls admitted before the circuit opened; their outcome no longer matters
+            }
+        }
+    }
+    
+    /**
+     * A call that ended without an outcome, e.g. cancelled; hands back a half-open trial permit
+     */
+    synchronized void onCancel() {
+        if (state == State.HALF_OPEN && halfOpenPermits < config.getHalfOpenCalls()) {
+            halfOpenPermits++;
+        }
+    }
+    
+    synchronized State getState() {
+        return state;
+    }
+    
+    private void record(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowNext]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = failed;
+        if (failed) {
+            windowFailures++;
+        }
+        windowNext = (windowNext + 1) % window.length;
+    }
+    
+    private void open() {
+        openedAtNanos = System.nanoTime();
+        transition(State.OPEN);
+    }
+    
+    private void resetWindow() {
+        windowCount = 0;
+        windowNext = 0;
+        windowFailures = 0;
+    }
+    
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        if (previous != next) {
+            onTransition.accept(previous, next);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.enterprise.shop.middleware.resilience;
+
+/**
+ * Thrown instead of calling the backend while a route's circuit is open
+ */
+public class CircuitOpenException extends RuntimeException {
+    
+    private final long retryAfterMs;
+    
+    public CircuitOpenException(String route, long retryAfterMs) {
+        super("Circuit open for " + route);
+        this.retryAfterMs = retryAfterMs;
+    }
+    
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
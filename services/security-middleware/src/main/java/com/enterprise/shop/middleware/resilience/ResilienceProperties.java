@@ -0,0 +1,66 @@
+package com.enterprise.shop.middleware.resilience;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the resilience layer around backend calls (resilience.*)
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "resilience")
+public class ResilienceProperties {
+    
+    /** Time allowed for one backend attempt to produce a response */
+    private long attemptTimeoutMs = 5000;
+    
+    /** Routes tracked separately; further routes share one breaker */
+    private int maxRoutes = 500;
+    
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    
+    private Retry retry = new Retry();
+    
+    private Hedge hedge = new Hedge();
+    
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        
+        /** Number of most recent calls the failure rate is computed over */
+        private int windowSize = 50;
+        
+        /** No decision is made before this many calls are in the window */
+        private int minimumCalls = 20;
+        
+        private int failureRateThreshold = 50;
+        
+        private long openDurationMs = 10000;
+        
+        /** Trial calls let through while half-open; all must succeed to close again */
+        private int halfOpenCalls = 5;
+    }
+    
+    @Data
+    public static class Retry {
+        /** Extra attempts after the first, spent by retries and hedges alike; GET only */
+        private int maxRetries = 2;
+        private long backoffMs = 50;
+        private long maxBackoffMs = 500;
+        private double jitter = 0.5;
+    }
+    
+    @Data
+    public static class Hedge {
+        private boolean enabled = false;
+        
+        /** Hedge after the route's attempt latency at this percentile */
+        private double percentile = 0.95;
+        
+        private long minDelayMs = 10;
+        
+        /** Attempts recorded for a route before hedging starts */
+        private long minSamples = 100;
+    }
+}
@@ -0,0 +1,17 @@
+package com.enterprise.shop.middleware.routing;
+
+/**
+ * What the gateway knows about a route ahead of time. One instance is shared by every
+ * path that maps to the same template, so it can be compared and used as a key cheaply.
+ * <p>
+ * There is no backend target: every route goes to the single backend-service. Per-route
+ * policies stay with the components that apply them, keyed by the template: cache TTLs
+ * in ResponseCache, breaker state and hedge delays in BackendResilience. Admission is
+ * per caller, not per route.
+ *
+ * @param template     path with ids replaced by {id}, used for metrics, breakers and caching
+ * @param protocolType protocol implied by the path alone, or null to decide by content type
+ * @param cacheable    whether GETs may be answered from the gateway response cache
+ */
+public record RouteDescriptor(String template, String protocolType, boolean cacheable) {
+}
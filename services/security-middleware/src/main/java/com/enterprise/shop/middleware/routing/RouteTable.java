@@ -0,0 +1,158 @@
+package com.enterprise.shop.middleware.routing;
+
+import com.enterprise.shop.middleware.cache.ResponseCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maps raw request paths to shared route descriptors. Descriptors for configured routes
+ * are compiled at startup; other templates are compiled on first sight. Raw paths are
+ * memoized up to max-paths, so a repeat request costs one map lookup instead of
+ * re-deriving the template and re-scanning for the protocol.
+ */
+@Component
+@Slf4j
+public class RouteTable {
+    
+    public static final String REST = "REST";
+    public static final String SOAP = "SOAP";
+    public static final String GRAPHQL = "GraphQL";
+    
+    private static final String OVERFLOW_TEMPLATE = "other";
+    private static final int MAX_CONTENT_TYPES = 256;
+    
+    private final int maxPaths;
+    private final int maxRoutes;
+    private final Set<String> cachedTemplates;
+    
+    private final Map<String, RouteDescriptor> byTemplate = new ConcurrentHashMap<>();
+    private final Map<String, RouteDescriptor> byPath = new ConcurrentHashMap<>();
+    private final Map<String, String> protocolByContentType = new ConcurrentHashMap<>();
+    
+    public RouteTable(ResponseCacheProperties cacheProperties,
+                      @Value("${routing.max-paths:10000}") int maxPaths,
+                      @Value("${routing.max-routes:500}") int maxRoutes) {
+        this.maxPaths = maxPaths;
+        this.maxRoutes = maxRoutes;
+        this.cachedTemplates = cacheProperties.isEnabled()
+                ? cacheProperties.getRoutes().stream()
+                        .map(ResponseCacheProperties.Route::getPath)
+                        .collect(Collectors.toUnmodifiableSet())
+                : Set.of();
+        
+        cachedTemplates.forEach(this::descriptorFor);
+        byTemplate.put(OVERFLOW_TEMPLATE, new RouteDescriptor(OVERFLOW_TEMPLATE, null, false));
+        log.info("Route table compiled with {} routes", byTemplate.size());
+    }
+    
+    /**
+     * Descriptor for a raw path (without query string)
+     */
+    public RouteDescriptor lookup(String rawPath) {
+        RouteDescriptor route = byPath.get(rawPath);
+        if (route != null) {
+            return route;
+        }
+        route = descriptorFor(templateOf(rawPath));
+        // Paths carrying ids are unbounded; stop memoizing once the table is full
+        if (byPath.size() < maxPaths) {
+            byPath.putIfAbsent(rawPath, route);
+        }
+        return route;
+    }
+    
+    /**
+     * Protocol of a request on this route: fixed by the path when it is a GraphQL endpoint,
+     * otherwise decided by the content type
+     */
+    public String protocolType(RouteDescriptor route, String contentType) {
+        if (route.protocolType() != null) {
+            return route.protocolType();
+        }
+        if (contentType == null) {
+            return REST;
+        }
+        String protocol = protocolByContentType.get(contentType);
+        if (protocol == null) {
+            protocol = protocolOf(contentType);
+            if (protocolByContentType.size() < MAX_CONTENT_TYPES) {
+                protocolByContentType.putIfAbsent(contentType, protocol);
+            }
+        }
+        return protocol;
+    }
+    
+    public int size() {
+        return byTemplate.size();
+    }
+    
+    private RouteDescriptor descriptorFor(String template) {
+        RouteDescriptor route = byTemplate.get(template);
+        if (route != null) {
+            return route;
+        }
+        // Cap distinct templates so unexpected paths can't grow metrics and breakers without bound
+        if (byTemplate.size() >= maxRoutes) {
+            return byTemplate.get(OVERFLOW_TEMPLATE);
+        }
+        return byTemplate.computeIfAbsent(template, t -> new RouteDescriptor(
+                t, t.contains("/graphql") ? GRAPHQL : null, cachedTemplates.contains(t)));
+    }
+    
+    private static String protocolOf(String contentType) {
+        if (contentType.contains("application/soap+xml") || contentType.contains("text/xml")) {
+            return SOAP;
+        }
+        if (contentType.contains("application/graphql")) {
+            return GRAPHQL;
+        }
+        return REST;
+    }
+    
+    /**
+     * Replace numeric and long hex or UUID path segments with {id}
+     */
+    static String templateOf(String path) {
+        StringBuilder template = null;
+        int segmentStart = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i < path.length() && path.charAt(i) != '/') {
+                continue;
+            }
+            if (isIdentifier(path, segmentStart, i)) {
+                if (template == null) {
+                    template = new StringBuilder(path.length()).append(path, 0, segmentStart);
+                }
+                template.append("{id}");
+            } else if (template != null) {
+                template.append(path, segmentStart, i);
+            }
+            if (template != null && i < path.length()) {
+                template.append('/');
+            }
+            segmentStart = i + 1;
+        }
+        return template != null ? template.toString() : path;
+    }
+    
+    private static boolean isIdentifier(String path, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        boolean allDigits = true;
+        boolean allHex = true;
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            boolean digit = c >= '0' && c <= '9';
+            allDigits &= digit;
+            allHex &= digit || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') || c == '-';
+        }
+        return allDigits || (allHex && end - start >= 16);
+    }
+}
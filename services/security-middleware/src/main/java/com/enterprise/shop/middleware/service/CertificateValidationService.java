@@ -1,31 +1,53 @@
 package com.enterprise.shop.middleware.service;
 
+import com.enterprise.shop.middleware.audit.AuditLogQuery;
+import com.enterprise.shop.middleware.audit.AuditLogSink;
+import com.enterprise.shop.middleware.audit.RequestLogRingBuffer;
+import com.enterprise.shop.middleware.metrics.RequestCounters;
 import com.enterprise.shop.middleware.model.RequestLog;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
 public class CertificateValidationService {
     
     // Trusted service Common Names
-    private static final Set<String> TRUSTED_SERVICES = Set.of(
+    public static final Set<String> TRUSTED_SERVICES = Set.of(
         "user-bff",
         "order-bff",
         "security-middleware"
     );
     
-    // In-memory log storage for demo purposes
-    private final List<RequestLog> requestLogs = new ArrayList<>();
-    private final ConcurrentHashMap<String, Integer> requestCounts = new ConcurrentHashMap<>();
+    // Bounded in-memory log of the most recent requests
+    private final RequestLogRingBuffer requestLogs;
+    private final RequestCounters requestCounters;
+    
+    // Durable audit trail, absent when audit.durable.enabled=false
+    private final AuditLogSink auditLogSink;
+    
+    // Fraction of successful requests echoed to the console log
+    private final double requestLogSampleRate;
+    
+    public CertificateValidationService(@Value("${audit.log.capacity:10000}") int auditLogCapacity,
+                                        @Value("${logging.request.sample-rate:0.01}") double requestLogSampleRate,
+                                        ObjectProvider<AuditLogSink> auditLogSink,
+                                        MeterRegistry meterRegistry) {
+        this.requestLogs = new RequestLogRingBuffer(auditLogCapacity);
+        this.requestLogSampleRate = requestLogSampleRate;
+        this.requestCounters = new RequestCounters(TRUSTED_SERVICES.stream().sorted().toList(), meterRegistry);
+        this.auditLogSink = auditLogSink.getIfAvailable();
+    }
     
     /**
      * Validate client certificate CN against trusted services
@@ -39,8 +61,7 @@ public class CertificateValidationService {
         boolean isValid = TRUSTED_SERVICES.contains(clientCertCN);
         
         if (isValid) {
-            log.info("Client certificate validated: {}", clientCertCN);
-            requestCounts.merge(clientCertCN, 1, Integer::sum);
+            log.debug("Client certificate validated: {}", clientCertCN);
         } else {
             log.warn("Untrusted client certificate: {}", clientCertCN);
         }
@@ -67,48 +88,72 @@ public class CertificateValidationService {
                 .errorMessage(errorMessage)
                 .build();
         
+        requestCounters.increment(callerService, protocolType, method, result);
         requestLogs.add(requestLog);
+        if (auditLogSink != null) {
+            auditLogSink.append(requestLog);
+        }
         
-        // Log to console/file
+        // Every request is already in the audit trail, so only a sample of successful
+        // ones is echoed to the console; failures are always logged
         if ("ALLOWED".equals(result)) {
-            log.info("Request {} | Service: {} | Endpoint: {} {} | Protocol: {} | Duration: {}ms",
-                    result, callerService, method, endpoint, protocolType, durationMs);
+            if (log.isInfoEnabled() && (requestLogSampleRate >= 1.0
+                    || ThreadLocalRandom.current().nextDouble() < requestLogSampleRate)) {
+                log.info("request result={} caller={} method={} endpoint={} protocol={} durationMs={} id={}",
+                        result, callerService, method, endpoint, protocolType, durationMs, requestLog.getRequestId());
+            }
         } else {
-            log.warn("Request {} | Service: {} | Endpoint: {} {} | Protocol: {} | Error: {}",
-                    result, callerService, method, endpoint, protocolType, errorMessage);
+            log.warn("request result={} caller={} method={} endpoint={} protocol={} durationMs={} id={} error=\"{}\"",
+                    result, callerService, method, endpoint, protocolType, durationMs, requestLog.getRequestId(),
+                    errorMessage);
         }
     }
     
     /**
-     * Get request statistics
+     * Get request totals per trusted service, with untrusted callers under "other"
      */
-    public ConcurrentHashMap<String, Integer> getRequestStats() {
-        return requestCounts;
+    public Map<String, Long> getRequestStats() {
+        return requestCounters.totalsByCaller();
+    }
+    
+    /**
+     * Get request counts by caller, protocol, method and result
+     */
+    public Map<String, Map<String, Map<String, Map<String, Long>>>> getRequestBreakdown() {
+        return requestCounters.snapshot();
     }
     
     /**
      * Get recent request logs
      */
     public List<RequestLog> getRecentLogs(int limit) {
-        int size = requestLogs.size();
-        int start = Math.max(0, size - limit);
-        return new ArrayList<>(requestLogs.subList(start, size));
+        return requestLogs.recent(limit);
     }
     
     /**
-     * Detect protocol type from request
+     * Search the audit trail: the durable log when enabled (it survives restarts),
+     * otherwise the in-memory ring. Reading segments blocks, so call off the event loop.
      */
-    public String detectProtocolType(String contentType, String endpoint) {
-        if (contentType != null) {
-            if (contentType.contains("application/soap+xml") || 
-                contentType.contains("text/xml")) {
-                return "SOAP";
-            }
-            if (contentType.contains("application/graphql") ||
-                endpoint.contains("/graphql")) {
-                return "GraphQL";
-            }
+    public List<RequestLog> findLogs(AuditLogQuery query) {
+        if (auditLogSink != null) {
+            return auditLogSink.query(query);
+        }
+        List<RequestLog> matches = requestLogs.recent(requestLogs.capacity()).stream()
+                .filter(query::matches)
+                .toList();
+        return matches.subList(Math.max(0, matches.size() - query.limit()), matches.size());
+    }
+    
+    /**
+     * Durable audit log counters, or null when the durable log is disabled
+     */
+    public Map<String, Long> getAuditLogStats() {
+        if (auditLogSink == null) {
+            return null;
         }
-        return "REST";
+        return Map.of(
+                "written", auditLogSink.getWritten(),
+                "dropped", auditLogSink.getDropped(),
+                "queued", (long) auditLogSink.getQueued());
     }
 }
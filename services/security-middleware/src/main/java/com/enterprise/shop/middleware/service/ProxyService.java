@@ -1,31 +1,71 @@
 package com.enterprise.shop.middleware.service;
 
-import lombok.RequiredArgsConstructor;
+import com.enterprise.shop.middleware.cache.ResponseCache;
+import com.enterprise.shop.middleware.metrics.RouteLatencyRecorder;
+import com.enterprise.shop.middleware.metrics.RouteLatencyRecorder.Outcome;
+import com.enterprise.shop.middleware.resilience.BackendResilience;
+import com.enterprise.shop.middleware.routing.RouteDescriptor;
+import com.enterprise.shop.middleware.routing.RouteTable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ProxyService {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
+    // Connection-level headers that must not be forwarded by a proxy (RFC 9110, section 7.6.1)
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+        "connection", "keep-alive", "proxy-authenticate", "proxy-authorization",
+        "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade", "host"
+    );
+    
     private final WebClient backendWebClient;
     private final CertificateValidationService validationService;
+    private final RouteTable routeTable;
+    private final RouteLatencyRecorder latencyRecorder;
+    private final BackendResilience backendResilience;
+    
+    // Shared GET cache, absent unless cache.enabled=true
+    private final ResponseCache responseCache;
+    
+    public ProxyService(WebClient backendWebClient, CertificateValidationService validationService,
+                        RouteTable routeTable, RouteLatencyRecorder latencyRecorder,
+                        BackendResilience backendResilience, ObjectProvider<ResponseCache> responseCache) {
+        this.backendWebClient = backendWebClient;
+        this.validationService = validationService;
+        this.routeTable = routeTable;
+        this.latencyRecorder = latencyRecorder;
+        this.backendResilience = backendResilience;
+        this.responseCache = responseCache.getIfAvailable();
+    }
     
     /**
      * Forward request to backend service
      */
-    public Mono<String> forwardRequest(String path, HttpMethod method, 
+    public Mono<String> forwardRequest(RouteDescriptor route, String path, HttpMethod method,
                                         String body, HttpHeaders headers,
                                         String callerService) {
-        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
         String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
-        String protocolType = validationService.detectProtocolType(contentType, path);
+        String protocolType = routeTable.protocolType(route, contentType);
         
         log.debug("Forwarding {} request to backend: {} {}", protocolType, method, path);
         
@@ -41,6 +81,10 @@ public class ProxyService {
                     if (accept != null) {
                         h.set(HttpHeaders.ACCEPT, accept);
                     }
+                    String idempotencyKey = headers.getFirst(IDEMPOTENCY_KEY_HEADER);
+                    if (idempotencyKey != null) {
+                        h.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+                    }
                     // Add caller service header for backend tracking
                     h.set("X-Caller-Service", callerService);
                     h.set("X-Protocol-Type", protocolType);
@@ -60,20 +104,133 @@ public class ProxyService {
                     .bodyToMono(String.class);
         }
         
-        return responseMono
-                .doOnSuccess(response -> {
-                    long duration = System.currentTimeMillis() - startTime;
-                    validationService.logRequest(
-                            callerService, path, method.name(), 
-                            protocolType, "ALLOWED", callerService,
-                            duration, null);
-                })
-                .doOnError(error -> {
-                    long duration = System.currentTimeMillis() - startTime;
-                    validationService.logRequest(
-                            callerService, path, method.name(),
-                            protocolType, "ERROR", callerService,
-                            duration, error.getMessage());
+        Mono<String> call = responseMono;
+        return backendResilience.execute(route.template(), method, () -> call, response -> false)
+                .doOnSuccess(response -> complete(callerService, route, path, method, protocolType,
+                        Outcome.SUCCESS, startNanos, null))
+                .doOnError(error -> complete(callerService, route, path, method, protocolType,
+                        error instanceof WebClientResponseException responseError
+                                ? Outcome.of(responseError.getStatusCode()) : Outcome.ERROR,
+                        startNanos, error.getMessage()));
+    }
+    
+    /**
+     * Forward a request to the backend without buffering either body. The request body is
+     * streamed to the backend as it arrives, and the returned entity carries the backend's
+     * status, headers and a body Flux that the caller writes out chunk by chunk.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> forwardStreaming(RouteDescriptor route, String path,
+                                                                   HttpMethod method, Flux<DataBuffer> body,
+                                                                   HttpHeaders headers, String callerService) {
+        if (responseCache == null || method != HttpMethod.GET || !route.cacheable()) {
+            return streamFromBackend(path, route, method, body, headers, callerService);
+        }
+        
+        long startNanos = System.nanoTime();
+        return responseCache.get(path, route.template(), headers,
+                        backendHeaders -> streamFromBackend(path, route, method, body, backendHeaders, callerService))
+                .doOnNext(entity -> {
+                    // Requests that reached the backend are recorded by streamFromBackend
+                    String cacheStatus = entity.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER);
+                    if ("HIT".equals(cacheStatus) || "COALESCED".equals(cacheStatus)) {
+                        String protocolType = routeTable.protocolType(route,
+                                headers.getFirst(HttpHeaders.CONTENT_TYPE));
+                        complete(callerService, route, path, method, protocolType,
+                                Outcome.of(entity.getStatusCode()), startNanos, null);
+                    }
                 });
     }
+    
+    private Mono<ResponseEntity<Flux<DataBuffer>>> streamFromBackend(String path, RouteDescriptor route,
+                                                                     HttpMethod method, Flux<DataBuffer> body,
+                                                                     HttpHeaders headers, String callerService) {
+        long startNanos = System.nanoTime();
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        String protocolType = routeTable.protocolType(route, contentType);
+        
+        log.debug("Streaming {} request to backend: {} {}", protocolType, method, path);
+        
+        WebClient.RequestBodySpec requestSpec = backendWebClient
+                .method(method)
+                .uri(path)
+                .headers(h -> {
+                    copyHeaders(headers, h);
+                    h.set("X-Caller-Service", callerService);
+                    h.set("X-Protocol-Type", protocolType);
+                });
+        
+        WebClient.RequestHeadersSpec<?> request =
+                (method == HttpMethod.POST || method == HttpMethod.PUT || method == HttpMethod.PATCH)
+                        ? requestSpec.body(BodyInserters.fromDataBuffers(body))
+                        : requestSpec;
+        
+        Mono<ResponseEntity<Flux<DataBuffer>>> call = request
+                .retrieve()
+                // Pass backend statuses through, except that a GET's 502/503/504 becomes an error
+                // (reading and releasing its body) so that it can be retried
+                .onStatus(status -> true, response ->
+                        method == HttpMethod.GET && BackendResilience.isRetryableStatus(response.statusCode())
+                                ? response.createException() : Mono.empty())
+                .toEntityFlux(DataBuffer.class);
+        
+        return backendResilience.execute(route.template(), method, () -> call,
+                        entity -> entity.getStatusCode().is5xxServerError(), ProxyService::releaseBody)
+                // Out of retries: give the client the backend's own response after all
+                .onErrorResume(WebClientResponseException.class, error -> Mono.just(
+                        ResponseEntity.status(error.getStatusCode())
+                                .headers(error.getHeaders())
+                                .body(Flux.just(DefaultDataBufferFactory.sharedInstance
+                                        .wrap(error.getResponseBodyAsByteArray())))))
+                .map(entity -> {
+                    HttpHeaders responseHeaders = new HttpHeaders();
+                    copyHeaders(entity.getHeaders(), responseHeaders);
+                    Outcome outcome = Outcome.of(entity.getStatusCode());
+                    
+                    Flux<DataBuffer> responseBody = entity.getBody()
+                            .doOnComplete(() -> complete(callerService, route, path, method, protocolType,
+                                    outcome, startNanos, null))
+                            .doOnError(error -> complete(callerService, route, path, method, protocolType,
+                                    Outcome.ERROR, startNanos, error.getMessage()));
+                    
+                    return ResponseEntity.status(entity.getStatusCode())
+                            .headers(responseHeaders)
+                            .body(responseBody);
+                })
+                .doOnError(error -> complete(callerService, route, path, method, protocolType,
+                        Outcome.ERROR, startNanos, error.getMessage()));
+    }
+    
+    /**
+     * Record latency and write the audit entry once the exchange has finished
+     */
+    private void complete(String callerService, RouteDescriptor route, String path, HttpMethod method,
+                          String protocolType, Outcome outcome, long startNanos, String errorMessage) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        latencyRecorder.record(callerService, protocolType, route.template(), outcome, elapsedNanos);
+        
+        boolean failed = errorMessage != null || outcome == Outcome.SERVER_ERROR || outcome == Outcome.ERROR;
+        String result = failed ? "ERROR" : "ALLOWED";
+        validationService.logRequest(
+                callerService, path, method.name(),
+                protocolType, result, callerService,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), errorMessage);
+    }
+    
+    /**
+     * Drain a response that will never be written, e.g. the loser of a hedge, so its
+     * buffers are freed and the connection goes back to the pool
+     */
+    private static void releaseBody(ResponseEntity<Flux<DataBuffer>> entity) {
+        if (entity.getBody() != null) {
+            entity.getBody().doOnNext(DataBufferUtils::release).onErrorComplete().subscribe();
+        }
+    }
+    
+    private void copyHeaders(HttpHeaders source, HttpHeaders target) {
+        source.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                target.addAll(name, values);
+            }
+        });
+    }
 }
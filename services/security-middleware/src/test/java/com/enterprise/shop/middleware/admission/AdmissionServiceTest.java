@@ -0,0 +1,34 @@
+package com.enterprise.shop.middleware.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdmissionServiceTest {
+    
+    @Test
+    void requestsShedForConcurrencyDoNotSpendTheCallersRate() {
+        AdmissionProperties properties = new AdmissionProperties();
+        // Three tokens that never refill, and room for one request in flight
+        properties.getRate().setDefaults(new AdmissionProperties.Limit(0, 3));
+        properties.getConcurrency().setInitialLimit(1);
+        properties.getConcurrency().setMinLimit(1);
+        properties.getConcurrency().setMaxLimit(1);
+        AdmissionService admission = new AdmissionService(properties, new SimpleMeterRegistry());
+        
+        assertThat(admission.tryAdmit("order-bff", true).admitted()).isTrue();
+        for (int i = 0; i < 10; i++) {
+            assertThat(admission.tryAdmit("order-bff", true).status())
+                    .isEqualTo(AdmissionService.Status.OVERLOADED);
+        }
+        admission.releaseIgnored();
+        
+        assertThat(admission.tryAdmit("order-bff", true).admitted()).isTrue();
+        admission.releaseIgnored();
+        assertThat(admission.tryAdmit("order-bff", true).admitted()).isTrue();
+        admission.releaseIgnored();
+        assertThat(admission.tryAdmit("order-bff", true).status())
+                .isEqualTo(AdmissionService.Status.RATE_LIMITED);
+    }
+}
@@ -0,0 +1,17 @@
+package com.enterprise.shop.middleware.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuditLogSinkTest {
+    
+    @Test
+    void refusesToStartWithoutAConfiguredDirectory() {
+        assertThatThrownBy(() -> new AuditLogSink(" ", 1 << 16, 2, 16, 8, 1000,
+                AuditLogSink.OverflowPolicy.DROP, 5, new SimpleMeterRegistry()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("audit.durable.directory");
+    }
+}
@@ -0,0 +1,139 @@
+package com.enterprise.shop.middleware.audit;
+
+import com.enterprise.shop.middleware.model.RequestLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLogRingBufferTest {
+    
+    private static final int PRODUCERS = 8;
+    private static final int READERS = 4;
+    
+    @Test
+    void keepsEveryEntryWhenNothingIsOverwritten() throws Exception {
+        int perProducer = 5_000;
+        RequestLogRingBuffer buffer = new RequestLogRingBuffer(PRODUCERS * perProducer);
+        
+        run(buffer, perProducer);
+        
+        List<RequestLog> all = buffer.recent(buffer.capacity());
+        assertThat(buffer.written()).isEqualTo((long) PRODUCERS * perProducer);
+        assertThat(all).hasSize(PRODUCERS * perProducer);
+        assertConsistent(all);
+        
+        Map<String, Set<Long>> seen = new HashMap<>();
+        for (RequestLog log : all) {
+            seen.computeIfAbsent(log.getCallerService(), k -> new HashSet<>()).add(log.getDurationMs());
+        }
+        assertThat(seen).hasSize(PRODUCERS);
+        seen.values().forEach(indexes -> assertThat(indexes).hasSize(perProducer));
+    }
+    
+    @Test
+    void staysWithinCapacityWhileWrappingUnderContention() throws Exception {
+        int perProducer = 20_000;
+        RequestLogRingBuffer buffer = new RequestLogRingBuffer(100);
+        assertThat(buffer.capacity()).isEqualTo(128);
+        
+        run(buffer, perProducer);
+        
+        // With every writer finished, the ring holds exactly the last capacity entries
+        List<RequestLog> last = buffer.recent(Integer.MAX_VALUE);
+        assertThat(buffer.written()).isEqualTo((long) PRODUCERS * perProducer);
+        assertThat(last).hasSize(buffer.capacity());
+        assertConsistent(last);
+    }
+    
+    /**
+     * Writes perProducer entries from each producer while readers take snapshots,
+     * checking every snapshot as it is taken
+     */
+    private void run(RequestLogRingBuffer buffer, int perProducer) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshots = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS + READERS);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                String producer = "producer-" + p;
+                producers.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        buffer.add(entry(producer, i));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    while (writing.get()) {
+                        List<RequestLog> snapshot = buffer.recent(buffer.capacity());
+                        assertThat(snapshot.size()).isLessThanOrEqualTo(buffer.capacity());
+                        assertConsistent(snapshot);
+                        snapshots.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> producer : producers) {
+                producer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(snapshots.get()).isPositive();
+    }
+    
+    /**
+     * No torn entries (every field belongs to the same write), no duplicates,
+     * and each producer's entries in the order it wrote them
+     */
+    private static void assertConsistent(List<RequestLog> snapshot) {
+        Set<String> ids = new HashSet<>();
+        Map<String, Long> lastIndex = new HashMap<>();
+        for (RequestLog log : snapshot) {
+            assertThat(log.getRequestId()).isEqualTo(log.getCallerService() + "-" + log.getDurationMs());
+            assertThat(log.getEndpoint()).isEqualTo("/" + log.getCallerService() + "/" + log.getDurationMs());
+            assertThat(ids.add(log.getRequestId())).as("duplicate %s", log.getRequestId()).isTrue();
+            
+            Long previous = lastIndex.put(log.getCallerService(), log.getDurationMs());
+            if (previous != null) {
+                assertThat(log.getDurationMs()).isGreaterThan(previous);
+            }
+        }
+    }
+    
+    private static RequestLog entry(String producer, long index) {
+        return RequestLog.builder()
+                .requestId(producer + "-" + index)
+                .callerService(producer)
+                .endpoint("/" + producer + "/" + index)
+                .method("GET")
+                .result("SUCCESS")
+                .durationMs(index)
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package com.enterprise.shop.middleware.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+    
+    private static final String ROUTE = "/api/product/{id}";
+    
+    private final ResponseCache cache = new ResponseCache(properties(), new SimpleMeterRegistry());
+    private final AtomicInteger backendCalls = new AtomicInteger();
+    
+    @Test
+    void sharedMaxAgeLetsTheGatewayAnswerWithoutTheBackend() {
+        Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend =
+                backend(headers -> headers.setCacheControl("max-age=0, s-maxage=30"));
+        
+        assertThat(cacheStatus(backend)).isEqualTo("MISS");
+        assertThat(cacheStatus(backend)).isEqualTo("HIT");
+        assertThat(backendCalls.get()).isEqualTo(1);
+    }
+    
+    @Test
+    void noCacheRevalidatesEveryTime() {
+        Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend = backend(headers -> {
+            headers.setCacheControl("no-cache");
+            headers.setETag("\"v1\"");
+        });
+        
+        cacheStatus(backend);
+        cacheStatus(backend);
+        assertThat(backendCalls.get()).isEqualTo(2);
+    }
+    
+    @Test
+    void neverStoresResponsesThatSetCookies() {
+        Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend = backend(headers -> {
+            headers.setCacheControl("s-maxage=30");
+            headers.add(HttpHeaders.SET_COOKIE, "session=abc");
+        });
+        
+        assertThat(cacheStatus(backend)).isEqualTo("MISS");
+        assertThat(cacheStatus(backend)).isEqualTo("MISS");
+        assertThat(backendCalls.get()).isEqualTo(2);
+    }
+    
+    @Test
+    void sharedMaxAgeTakesPrecedenceOverMaxAge() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("max-age=0, s-maxage=10");
+        assertThat(cache.freshnessNanos(headers, ROUTE)).isEqualTo(10_000_000_000L);
+        
+        headers.setCacheControl("max-age=5");
+        assertThat(cache.freshnessNanos(headers, ROUTE)).isEqualTo(5_000_000_000L);
+        
+        headers.setCacheControl("no-store");
+        assertThat(cache.freshnessNanos(headers, ROUTE)).isNegative();
+    }
+    
+    private String cacheStatus(Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend) {
+        ResponseEntity<Flux<DataBuffer>> entity = cache.get("/api/product/1", ROUTE, new HttpHeaders(), backend).block();
+        entity.getBody().blockLast();
+        return entity.getHeaders().getFirst(ResponseCache.CACHE_STATUS_HEADER);
+    }
+    
+    private Function<HttpHeaders, Mono<ResponseEntity<Flux<DataBuffer>>>> backend(Consumer<HttpHeaders> policy) {
+        return requestHeaders -> Mono.fromSupplier(() -> {
+            backendCalls.incrementAndGet();
+            HttpHeaders headers = new HttpHeaders();
+            policy.accept(headers);
+            DataBuffer body = DefaultDataBufferFactory.sharedInstance.wrap("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+            return ResponseEntity.ok().headers(headers).body(Flux.just(body));
+        });
+    }
+    
+    private static ResponseCacheProperties properties() {
+        ResponseCacheProperties.Route route = new ResponseCacheProperties.Route();
+        route.setPath(ROUTE);
+        route.setTtlSeconds(30);
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setEnabled(true);
+        properties.setRoutes(List.of(route));
+        return properties;
+    }
+}
@@ -0,0 +1,50 @@
+package com.enterprise.shop.middleware.metrics;
+
+import com.enterprise.shop.middleware.metrics.RouteLatencyRecorder.Outcome;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteLatencyRecorderTest {
+    
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RouteLatencyRecorder recorder =
+            new RouteLatencyRecorder(registry, Set.of("user-bff", "order-bff"), 60, 3, 10);
+    
+    @Test
+    void unknownCallersShareOneSeries() {
+        for (int i = 0; i < 50; i++) {
+            recorder.record("caller-" + i, "REST", "/api/product", Outcome.SUCCESS, 1_000_000);
+        }
+        recorder.record(null, "REST", "/api/product", Outcome.SUCCESS, 1_000_000);
+        recorder.record("user-bff", "REST", "/api/product", Outcome.SUCCESS, 1_000_000);
+        
+        assertThat(callerTags()).containsExactlyInAnyOrder("other", "user-bff");
+        assertThat(registry.get(RouteLatencyRecorder.METRIC_NAME).tag("caller", "other").timer().count())
+                .isEqualTo(51);
+    }
+    
+    @Test
+    void routesBeyondTheCapShareOneSeries() {
+        for (int i = 0; i < 20; i++) {
+            recorder.record("order-bff", "REST", "/unexpected/" + i, Outcome.CLIENT_ERROR, 1_000_000);
+        }
+        
+        Set<String> routes = registry.getMeters().stream()
+                .map(meter -> meter.getId().getTag("route"))
+                .collect(Collectors.toSet());
+        assertThat(routes).hasSize(11).contains("other");
+    }
+    
+    private Set<String> callerTags() {
+        return registry.getMeters().stream()
+                .map(Meter::getId)
+                .map(id -> id.getTag("caller"))
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,128 @@
+package com.enterprise.shop.middleware.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BackendResilienceTest {
+    
+    private static final String ROUTE = "/api/products";
+    
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger attempts = new AtomicInteger();
+    
+    @Test
+    void primaryFailingBeforeHedgeDelaySkipsTheHedge() throws Exception {
+        BackendResilience resilience = hedging(2, 100);
+        
+        // Not retryable, so the only extra attempt could come from the hedge
+        assertThatThrownBy(() -> resilience.execute(ROUTE, HttpMethod.GET,
+                () -> failAfter(10, new IllegalStateException("boom")), r -> false).block())
+                .hasMessage("boom");
+        
+        Thread.sleep(300);
+        assertThat(attempts.get()).isEqualTo(1);
+        assertThat(hedgesFired()).isZero();
+    }
+    
+    @Test
+    void hedgesAreCountedAgainstRetryBudget() {
+        BackendResilience resilience = hedging(1, 20);
+        
+        // The first attempt is still running at the hedge delay, so the hedge takes the one extra attempt
+        assertThatThrownBy(() -> resilience.execute(ROUTE, HttpMethod.GET,
+                () -> failAfter(100, unavailable()), r -> false).block())
+                .isInstanceOf(WebClientResponseException.class);
+        
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(hedgesFired()).isEqualTo(1);
+    }
+    
+    @Test
+    void noRetryBudgetMeansNoHedge() {
+        BackendResilience resilience = hedging(0, 20);
+        
+        String result = resilience.execute(ROUTE, HttpMethod.GET,
+                () -> {
+                    attempts.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100)).thenReturn("ok");
+                }, r -> false).block();
+        
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(1);
+    }
+    
+    @Test
+    void lateResultOfTheLosingAttemptIsDiscarded() throws Exception {
+        BackendResilience resilience = hedging(1, 20);
+        List<String> discarded = new CopyOnWriteArrayList<>();
+        
+        // The first attempt's response is already on its way when the hedge wins, so cancelling it is too late
+        String result = resilience.execute(ROUTE, HttpMethod.GET,
+                () -> attempts.incrementAndGet() == 1 ? deliveredAfter(100, "first") : deliveredAfter(10, "hedge"),
+                r -> false, discarded::add).block();
+        
+        Thread.sleep(300);
+        assertThat(result).isEqualTo("hedge");
+        assertThat(discarded).containsExactly("first");
+    }
+    
+    private BackendResilience hedging(int maxRetries, long hedgeDelayMs) {
+        ResilienceProperties properties = new ResilienceProperties();
+        properties.getCircuitBreaker().setEnabled(false);
+        properties.getRetry().setMaxRetries(maxRetries);
+        properties.getRetry().setBackoffMs(1);
+        properties.getHedge().setEnabled(true);
+        properties.getHedge().setMinSamples(0);
+        properties.getHedge().setMinDelayMs(hedgeDelayMs);
+        return new BackendResilience(properties, meterRegistry);
+    }
+    
+    private <T> Mono<T> failAfter(long millis, Throwable error) {
+        attempts.incrementAndGet();
+        return Mono.delay(Duration.ofMillis(millis)).then(Mono.error(error));
+    }
+    
+    /**
+     * A response that arrives after the delay even if the subscriber has cancelled meanwhile
+     */
+    private static Mono<String> deliveredAfter(long millis, String value) {
+        return Mono.from(subscriber -> {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+                
+                @Override
+                public void cancel() {
+                }
+            });
+            Schedulers.parallel().schedule(() -> {
+                subscriber.onNext(value);
+                subscriber.onComplete();
+            }, millis, TimeUnit.MILLISECONDS);
+        });
+    }
+    
+    private static WebClientResponseException unavailable() {
+        return WebClientResponseException.create(503, "Service Unavailable", null, null, null);
+    }
+    
+    private double hedgesFired() {
+        return meterRegistry.get("gateway.hedge.fired").tag("route", ROUTE).counter().count();
+    }
+}
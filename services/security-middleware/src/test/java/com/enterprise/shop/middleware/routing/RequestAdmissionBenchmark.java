@@ -0,0 +1,177 @@
+package com.enterprise.shop.middleware.routing;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.enterprise.shop.middleware.audit.AuditLogSink;
+import com.enterprise.shop.middleware.cache.ResponseCacheProperties;
+import com.enterprise.shop.middleware.identity.ClientIdentity;
+import com.enterprise.shop.middleware.identity.ClientIdentityResolver;
+import com.enterprise.shop.middleware.service.CertificateValidationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.SslInfo;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request admission work in the gateway: who is calling, which route the path belongs
+ * to, which protocol it speaks and whether the route is cacheable. precompiled goes through
+ * ClientIdentityResolver and RouteTable; perRequestDerivation repeats what the gateway did
+ * on every request before them (DN split, trust check, template derivation for the breaker
+ * and again for metrics, protocol detection), minus the INFO line the trust check logged.
+ * <p>
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main RequestAdmissionBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestAdmissionBenchmark {
+    
+    // Self-signed, CN=order-bff; only its subject and encoding are used
+    private static final String CLIENT_CERTIFICATE = """
+            -----BEGIN CERTIFICATE-----
+            MIIDfTCCAmWgAwIBAgIUNBfDxIgpzCk71FpAcNSTljyiqy8wDQYJKoZIhvcNAQEL
+            BQAwTjELMAkGA1UEBhMCVVMxGDAWBgNVBAoMD0VudGVycHJpc2UgU2hvcDERMA8G
+            A1UECwwIU2VydmljZXMxEjAQBgNVBAMMCW9yZGVyLWJmZjAeFw0yNjEwMTcwMjU2
+            MjJaFw0zNjEwMTQwMjU2MjJaME4xCzAJBgNVBAYTAlVTMRgwFgYDVQQKDA9FbnRl
+            cnByaXNlIFNob3AxETAPBgNVBAsMCFNlcnZpY2VzMRIwEAYDVQQDDAlvcmRlci1i
+            ZmYwggEiMA0GCSqGSIb3DQEBAQUAA4IBDwAwggEKAoIBAQDUfojm+HbuSKlgo3hW
+            FpKgHqI1yX2F6g+aN51cEqxNR8gj0gwUclAf6PY6DlEaG6xcLtZ3DC/0NtPRFwRz
+            HHDLlsrTMoBGgu/j7lp4sZDBroFfxCiOLGOP3ytcut2MmNXHPs1GHoXHi6Ckhzic
+            w+TYTmpTOSNekRgtxmBhwucA6fN6KfL96kM+i/x0G0+ImKN6fsgLTOWrko8tSQWP
+            7hOlXYyc/BssX2EFNoaRosQM8B5xoiTK2cIkorCYMK2iFXyZBCGYDzTTKfjCJp7e
+            OvirrEVPEN9ptWmxCpWU7u18TA7DOplEMa/xhaDsAWGGY6lK7G20OzsysSTvYydN
+            N2wjAgMBAAGjUzBRMB0GA1UdDgQWBBTn+j6ZPhwSo5sVVjzG0Xk4vx7n3DAfBgNV
+            HSMEGDAWgBTn+j6ZPhwSo5sVVjzG0Xk4vx7n3DAPBgNVHRMBAf8EBTADAQH/MA0G
+            CSqGSIb3DQEBCwUAA4IBAQB0f66hDIDyp9vN7Mp0VWeBZvABIgKMBLEOritEg5L4
+            yQqGyOMsya6i2H/TbN0Zael9eAtZwvzUbccspU4dW7tzX97qRoJSqj2BTHY0S8AQ
+            yIfs9i6tFQqAyFpuzIFAAiZj2zB7m7/O1N5/YoBdUcRsCWy6NoXiLlAdjJNt5yI2
+            XsfJMVIO4lzA0mYcMenpypj2SQDgQP3tMfvaDjomHnA4x0bngLz4tff/uVMNCkvz
+            3N/yuATTmx729ae65znhdIx/Jf81KPbXdSijb1z05JdGqjOQ0r9dUhWCQlDM7Iwh
+            VeyWeCgCK1JMKxy8R/fdeCCAkoqbS7qsyVCorqTsu+LU
+            -----END CERTIFICATE-----
+            """;
+    
+    private static final Set<String> CACHED_TEMPLATES =
+            Set.of("/api/product", "/api/product/{id}");
+    private static final List<String> PATH_SHAPES = List.of(
+            "/api/product/%d", "/api/order/track/%d", "/api/order/user/%d/history",
+            "/api/order/payment/%s", "/api/product", "/graphql");
+    private static final String CONTENT_TYPE = "application/json";
+    
+    @Param("1000")
+    private int distinctPaths;
+    
+    private String[] paths;
+    private int next;
+    
+    private X509Certificate certificate;
+    private ServerHttpRequest request;
+    private CertificateValidationService validationService;
+    private ClientIdentityResolver identityResolver;
+    private RouteTable routeTable;
+    
+    @Setup
+    public void setUp() throws Exception {
+        // Keep the trust check's log line out of both measurements
+        ((Logger) LoggerFactory.getLogger("com.enterprise.shop")).setLevel(Level.WARN);
+        
+        certificate = (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(
+                new ByteArrayInputStream(CLIENT_CERTIFICATE.getBytes(StandardCharsets.US_ASCII)));
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.get("/api/product");
+        builder.sslInfo(new SslInfo() {
+            @Override
+            public String getSessionId() {
+                return "benchmark";
+            }
+            
+            @Override
+            public X509Certificate[] getPeerCertificates() {
+                return new X509Certificate[]{certificate};
+            }
+        });
+        request = builder.build();
+        
+        validationService = new CertificateValidationService(10_000, 0.01,
+                new StaticListableBeanFactory().getBeanProvider(AuditLogSink.class), new SimpleMeterRegistry());
+        identityResolver = new ClientIdentityResolver(validationService, 1000);
+        
+        ResponseCacheProperties cacheProperties = new ResponseCacheProperties();
+        cacheProperties.setEnabled(true);
+        cacheProperties.setRoutes(CACHED_TEMPLATES.stream().map(template -> {
+            ResponseCacheProperties.Route route = new ResponseCacheProperties.Route();
+            route.setPath(template);
+            return route;
+        }).toList());
+        routeTable = new RouteTable(cacheProperties, 10_000, 500);
+        
+        paths = new String[distinctPaths];
+        for (int i = 0; i < distinctPaths; i++) {
+            String shape = PATH_SHAPES.get(i % PATH_SHAPES.size());
+            paths[i] = String.format(shape, shape.contains("%s") ? new UUID(i, i) : i);
+        }
+    }
+    
+    @Benchmark
+    public void precompiled(Blackhole blackhole) {
+        String path = nextPath();
+        ClientIdentity identity = identityResolver.resolve(request);
+        RouteDescriptor route = routeTable.lookup(path);
+        blackhole.consume(identity.trusted());
+        blackhole.consume(routeTable.protocolType(route, CONTENT_TYPE));
+        blackhole.consume(route.cacheable());
+    }
+    
+    @Benchmark
+    public void perRequestDerivation(Blackhole blackhole) {
+        String path = nextPath();
+        String commonName = null;
+        for (String part : certificate.getSubjectX500Principal().getName().split(",")) {
+            if (part.trim().startsWith("CN=")) {
+                commonName = part.trim().substring(3);
+                break;
+            }
+        }
+        blackhole.consume(validationService.validateClientCertificate(commonName));
+        String template = RouteTable.templateOf(path);
+        blackhole.consume(CACHED_TEMPLATES.contains(template));
+        blackhole.consume(detectProtocolType(CONTENT_TYPE, path));
+        // The metrics path derived the template a second time
+        blackhole.consume(RouteTable.templateOf(path));
+    }
+    
+    private String nextPath() {
+        String path = paths[next];
+        next = next + 1 == paths.length ? 0 : next + 1;
+        return path;
+    }
+    
+    private static String detectProtocolType(String contentType, String endpoint) {
+        if (contentType != null) {
+            if (contentType.contains("application/soap+xml") || contentType.contains("text/xml")) {
+                return "SOAP";
+            }
+            if (contentType.contains("application/graphql") || endpoint.contains("/graphql")) {
+                return "GraphQL";
+            }
+        }
+        return "REST";
+    }
+}
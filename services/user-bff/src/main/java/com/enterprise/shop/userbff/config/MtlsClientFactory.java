@@ -0,0 +1,355 @@
+package com.enterprise.shop.userbff.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.channel.ChannelMetricsRecorder;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Builds the client-side TLS setup for mTLS hops. One SslContext is shared by every
+ * connection so sessions can be resumed, the OpenSSL engine is used when netty-tcnative
+ * is on the classpath, and key/trust material is re-read when the store files change.
+ * Reloads swap the managers behind the context, so pooled connections stay open and
+ * only new handshakes pick up the rotated certificates.
+ * <p>
+ * The same class lives in order-bff, user-bff and security-middleware. Each service is
+ * built on its own from its own directory, so there is no shared module to hold it;
+ * change every copy together, scripts/check-shared-sources.sh fails if they drift.
+ */
+@Component
+@ConditionalOnProperty(name = "mtls.enabled", havingValue = "true")
+@Slf4j
+public class MtlsClientFactory {
+    
+    private final Path keystorePath;
+    private final char[] keystorePassword;
+    private final Path truststorePath;
+    private final char[] truststorePassword;
+    private final MeterRegistry meterRegistry;
+    
+    private final ReloadingKeyManager keyManager = new ReloadingKeyManager();
+    private final ReloadingTrustManager trustManager = new ReloadingTrustManager();
+    private final SslContext sslContext;
+    private final SslContext h2SslContext;
+    private final Counter reloadCounter;
+    private final Disposable reloadTask;
+    
+    private volatile FileTime keystoreModified;
+    private volatile FileTime truststoreModified;
+    
+    public MtlsClientFactory(
+            @Value("${mtls.keystore.path:/certs/keystore.p12}") String keystorePath,
+            @Value("${mtls.keystore.password:changeit}") String keystorePassword,
+            @Value("${mtls.truststore.path:/certs/truststore.p12}") String truststorePath,
+            @Value("${mtls.truststore.password:changeit}") String truststorePassword,
+            @Value("${mtls.session.cache-size:1000}") long sessionCacheSize,
+            @Value("${mtls.session.timeout-seconds:3600}") long sessionTimeoutSeconds,
+            @Value("${mtls.openssl.enabled:true}") boolean openSslEnabled,
+            @Value("${mtls.reload.interval-seconds:60}") long reloadIntervalSeconds,
+            MeterRegistry meterRegistry) {
+        this.keystorePath = Path.of(keystorePath);
+        this.keystorePassword = keystorePassword.toCharArray();
+        this.truststorePath = Path.of(truststorePath);
+        this.truststorePassword = truststorePassword.toCharArray();
+        this.meterRegistry = meterRegistry;
+        this.reloadCounter = Counter.builder("mtls.certificate.reloads")
+                .description("Key or trust store reloads picked up from disk")
+                .register(meterRegistry);
+        
+        try {
+            loadStores();
+            
+            SslProvider provider = openSslEnabled && OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+            this.sslContext = clientContextBuilder(provider, sessionCacheSize, sessionTimeoutSeconds)
+                    .build();
+            this.h2SslContext = clientContextBuilder(provider, sessionCacheSize, sessionTimeoutSeconds)
+                    .ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                    .applicationProtocolConfig(new ApplicationProtocolConfig(
+                            ApplicationProtocolConfig.Protocol.ALPN,
+                            ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                            ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                            ApplicationProtocolNames.HTTP_2,
+                            ApplicationProtocolNames.HTTP_1_1))
+                    .build();
+            log.info("mTLS client context ready (provider: {}, session cache: {}, session timeout: {}s)",
+                    provider, sessionCacheSize, sessionTimeoutSeconds);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create mTLS client context", e);
+        }
+        
+        this.reloadTask = reloadIntervalSeconds > 0
+                ? Flux.interval(Duration.ofSeconds(reloadIntervalSeconds), Schedulers.boundedElastic())
+                        .subscribe(tick -> reloadIfChanged())
+                : null;
+    }
+    
+    /**
+     * Secure the given client with the shared context and record handshakes under the target name.
+     * Clients configured for HTTP/2 get the context that offers h2 over ALPN.
+     */
+    public HttpClient secure(HttpClient httpClient, String target) {
+        boolean h2 = Arrays.asList(httpClient.configuration().protocols()).contains(HttpProtocol.H2);
+        SslContext context = h2 ? h2SslContext : sslContext;
+        HandshakeMetricsRecorder recorder = new HandshakeMetricsRecorder(meterRegistry, target);
+        return httpClient
+                .secure(spec -> spec.sslContext(context))
+                .metrics(true, () -> recorder);
+    }
+    
+    private SslContextBuilder clientContextBuilder(SslProvider provider, long sessionCacheSize,
+                                                   long sessionTimeoutSeconds) {
+        return SslContextBuilder.forClient()
+                .sslProvider(provider)
+                .keyManager(keyManager)
+                .trustManager(trustManager)
+                .sessionCacheSize(sessionCacheSize)
+                .sessionTimeout(sessionTimeoutSeconds);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (reloadTask != null) {
+            reloadTask.dispose();
+        }
+    }
+    
+    void reloadIfChanged() {
+        try {
+            if (Files.getLastModifiedTime(keystorePath).equals(keystoreModified)
+                    && Files.getLastModifiedTime(truststorePath).equals(truststoreModified)) {
+                return;
+            }
+            loadStores();
+            reloadCounter.increment();
+            log.info("Reloaded mTLS key and trust stores from {} and {}", keystorePath, truststorePath);
+        } catch (Exception e) {
+            // A half-written file during rotation is retried on the next tick
+            log.warn("Failed to reload mTLS stores, keeping current certificates: {}", e.getMessage());
+        }
+    }
+    
+    private synchronized void loadStores() throws Exception {
+        FileTime keyModified = Files.getLastModifiedTime(keystorePath);
+        FileTime trustModified = Files.getLastModifiedTime(truststorePath);
+        
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(
+                KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(loadKeyStore(keystorePath, keystorePassword), keystorePassword);
+        
+        TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(
+                TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(loadKeyStore(truststorePath, truststorePassword));
+        
+        keyManager.delegate.set(findKeyManager(keyManagerFactory.getKeyManagers()));
+        trustManager.delegate.set(findTrustManager(trustManagerFactory.getTrustManagers()));
+        keystoreModified = keyModified;
+        truststoreModified = trustModified;
+    }
+    
+    private static KeyStore loadKeyStore(Path path, char[] password) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, password);
+        }
+        return keyStore;
+    }
+    
+    private static X509ExtendedKeyManager findKeyManager(KeyManager[] keyManagers) {
+        for (KeyManager km : keyManagers) {
+            if (km instanceof X509ExtendedKeyManager x509) {
+                return x509;
+            }
+        }
+        throw new IllegalStateException("No X509 key manager available");
+    }
+    
+    private static X509ExtendedTrustManager findTrustManager(TrustManager[] trustManagers) {
+        for (TrustManager tm : trustManagers) {
+            if (tm instanceof X509ExtendedTrustManager x509) {
+                return x509;
+            }
+        }
+        throw new IllegalStateException("No X509 trust manager available");
+    }
+    
+    /**
+     * Key manager whose backing material can be replaced without rebuilding the SslContext
+     */
+    private static final class ReloadingKeyManager extends X509ExtendedKeyManager {
+        
+        private final AtomicReference<X509ExtendedKeyManager> delegate = new AtomicReference<>();
+        
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            return delegate.get().getClientAliases(keyType, issuers);
+        }
+        
+        @Override
+        public String chooseClientAlias(String[] keyType, Principal[] issuers, Socket socket) {
+            return delegate.get().chooseClientAlias(keyType, issuers, socket);
+        }
+        
+        @Override
+        public String chooseEngineClientAlias(String[] keyType, Principal[] issuers, SSLEngine engine) {
+            return delegate.get().chooseEngineClientAlias(keyType, issuers, engine);
+        }
+        
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            return delegate.get().getServerAliases(keyType, issuers);
+        }
+        
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            return delegate.get().chooseServerAlias(keyType, issuers, socket);
+        }
+        
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            return delegate.get().chooseEngineServerAlias(keyType, issuers, engine);
+        }
+        
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return delegate.get().getCertificateChain(alias);
+        }
+        
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            return delegate.get().getPrivateKey(alias);
+        }
+    }
+    
+    /**
+     * Trust manager whose trusted roots can be replaced without rebuilding the SslContext
+     */
+    private static final class ReloadingTrustManager extends X509ExtendedTrustManager {
+        
+        private final AtomicReference<X509ExtendedTrustManager> delegate = new AtomicReference<>();
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            delegate.get().checkClientTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            delegate.get().checkServerTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            delegate.get().checkClientTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            delegate.get().checkServerTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate.get().checkClientTrusted(chain, authType);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            delegate.get().checkServerTrusted(chain, authType);
+        }
+        
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.get().getAcceptedIssuers();
+        }
+    }
+    
+    /**
+     * Records TLS handshake count and latency per target; other channel metrics are left
+     * to the connection pool meters
+     */
+    private static final class HandshakeMetricsRecorder implements ChannelMetricsRecorder {
+        
+        private final MeterRegistry meterRegistry;
+        private final String target;
+        
+        HandshakeMetricsRecorder(MeterRegistry meterRegistry, String target) {
+            this.meterRegistry = meterRegistry;
+            this.target = target;
+        }
+        
+        @Override
+        public void recordTlsHandshakeTime(SocketAddress remoteAddress, Duration time, String status) {
+            Timer.builder("mtls.client.handshake")
+                    .description("TLS handshakes on outbound mTLS connections")
+                    .tag("target", target)
+                    .tag("status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(time);
+        }
+        
+        @Override
+        public void recordDataReceived(SocketAddress remoteAddress, long bytes) {
+        }
+        
+        @Override
+        public void recordDataSent(SocketAddress remoteAddress, long bytes) {
+        }
+        
+        @Override
+        public void incrementErrorsCount(SocketAddress remoteAddress) {
+        }
+        
+        @Override
+        public void recordConnectTime(SocketAddress remoteAddress, Duration time, String status) {
+        }
+        
+        @Override
+        public void recordResolveAddressTime(SocketAddress remoteAddress, Duration time, String status) {
+        }
+    }
+}
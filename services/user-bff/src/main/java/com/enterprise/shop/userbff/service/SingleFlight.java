@@ -0,0 +1,139 @@
+package com.enterprise.shop.userbff.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for idempotent middleware reads. Concurrent calls with the same key
+ * (auth scope plus request URI) subscribe to one shared Mono, so a burst of identical
+ * reads costs a single middleware round trip. Successful results of shared reads are
+ * then held for micro-ttl-ms; errors are never held and the next caller starts afresh.
+ * <p>
+ * Both BFFs carry this class: each is built on its own from its own directory, so there
+ * is no shared module to hold it. Change both copies together; scripts/check-shared-sources.sh
+ * fails if they drift.
+ */
+@Component
+public class SingleFlight {
+    
+    public static final String METRIC_NAME = "bff.single-flight.requests";
+    
+    /** Calls made with the BFF's own mTLS identity; no end-user credentials are forwarded */
+    public static final String SERVICE_SCOPE = "service";
+    
+    private final boolean enabled;
+    private final long microTtlNanos;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    
+    private final Counter leaders;
+    private final Counter coalesced;
+    private final Counter held;
+    
+    public SingleFlight(MeterRegistry meterRegistry,
+                        @Value("${single-flight.enabled:true}") boolean enabled,
+                        @Value("${single-flight.micro-ttl-ms:50}") long microTtlMs) {
+        this.enabled = enabled;
+        this.microTtlNanos = Duration.ofMillis(microTtlMs).toNanos();
+        
+        this.leaders = counter(meterRegistry, "leader", "Reads that went to the middleware");
+        this.coalesced = counter(meterRegistry, "coalesced", "Reads that joined an identical in-flight call");
+        this.held = counter(meterRegistry, "held", "Reads served from a result held for the micro-TTL");
+        Gauge.builder("bff.single-flight.in-flight", flights, Map::size)
+                .description("Distinct reads currently in flight or held")
+                .register(meterRegistry);
+        Gauge.builder("bff.single-flight.coalescing.ratio", this, SingleFlight::coalescingRatio)
+                .description("Share of reads that did not need their own middleware call")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Share one call among identical concurrent reads and hold the result for the micro-TTL.
+     * Only for data that is the same for everyone in the scope and may be a moment stale.
+     */
+    public Mono<String> shared(String scope, String uri, Supplier<Mono<String>> call) {
+        return execute(scope + ' ' + uri, microTtlNanos, call);
+    }
+    
+    /**
+     * Share one call among identical concurrent reads, without holding the result afterwards
+     */
+    public Mono<String> coalesced(String scope, String uri, Supplier<Mono<String>> call) {
+        return execute(scope + ' ' + uri, 0, call);
+    }
+    
+    public double coalescingRatio() {
+        double saved = coalesced.count() + held.count();
+        double total = saved + leaders.count();
+        return total == 0 ? 0 : saved / total;
+    }
+    
+    private Mono<String> execute(String key, long holdNanos, Supplier<Mono<String>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            Flight[] started = new Flight[1];
+            Flight flight = flights.compute(key, (k, current) -> {
+                if (current != null && current.usable(now)) {
+                    return current;
+                }
+                started[0] = new Flight(k, holdNanos, call.get());
+                return started[0];
+            });
+            if (flight == started[0]) {
+                leaders.increment();
+            } else if (flight.landed) {
+                held.increment();
+            } else {
+                coalesced.increment();
+            }
+            return flight.result;
+        });
+    }
+    
+    private static Counter counter(MeterRegistry meterRegistry, String result, String description) {
+        return Counter.builder(METRIC_NAME)
+                .description(description)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    private final class Flight {
+        private final Mono<String> result;
+        private volatile boolean landed;
+        private volatile long expiresAt;
+        
+        private Flight(String key, long holdNanos, Mono<String> call) {
+            // cache() keeps the call running if the first subscriber cancels, so joiners still get it
+            this.result = call
+                    .doOnSuccess(value -> land(key, holdNanos))
+                    .doOnError(error -> flights.remove(key, this))
+                    .cache();
+        }
+        
+        private boolean usable(long now) {
+            return !landed || now - expiresAt < 0;
+        }
+        
+        private void land(String key, long holdNanos) {
+            if (holdNanos <= 0) {
+                flights.remove(key, this);
+                return;
+            }
+            expiresAt = System.nanoTime() + holdNanos;
+            landed = true;
+            // Evict on a timer too, so keys that are never read again don't pile up
+            Mono.delay(Duration.ofNanos(holdNanos)).subscribe(tick -> flights.remove(key, this));
+        }
+    }
+}
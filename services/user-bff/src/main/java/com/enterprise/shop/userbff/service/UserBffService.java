@@ -16,6 +16,7 @@ public class UserBffService {
     
     private final WebClient middlewareWebClient;
     private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
     
     public Mono<String> register(UserRegistrationRequest request) {
         log.info("BFF: Processing registration for {}", request.getEmail());
@@ -74,12 +75,13 @@ public class UserBffService {
     }
     
     public Mono<String> getUser(Long userId) {
-        log.info("BFF: Getting user {}", userId);
+        log.debug("BFF: Getting user {}", userId);
         
-        return middlewareWebClient
-                .get()
-                .uri("/api/user/{userId}", userId)
-                .retrieve()
-                .bodyToMono(String.class);
+        return singleFlight.coalesced(SingleFlight.SERVICE_SCOPE, "/api/user/" + userId,
+                () -> middlewareWebClient
+                        .get()
+                        .uri("/api/user/{userId}", userId)
+                        .retrieve()
+                        .bodyToMono(String.class));
     }
 }